@@ -0,0 +1,98 @@
+package spring.batch.part3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * chunk 크기 (commit interval) 별로 실제 chunk step 을 끝까지 실행해서 비교한다.
+ *
+ * benchmark 1 번 호출 = rows 개를 jdbcCursor 로 읽어서 다른 H2 의 person 테이블에 upsert 하는 step 1 번 이다.
+ * chunkSize 개마다 write + commit (+ job repository 의 StepExecution update) 이 일어난다.
+ * reader 의 fetchSize 는 ItemReaderBenchmark.FETCH_SIZE 로 고정해서 chunk 크기만 바뀌게 한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=ChunkSizeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ChunkSizeBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int chunkSize;
+
+    private DataSource source;
+    private PersonJdbcBatchItemWriter itemWriter;
+    private SimpleJobLauncher jobLauncher;
+    private JobBuilderFactory jobBuilderFactory;
+    private StepBuilderFactory stepBuilderFactory;
+    private long runId;
+
+    @Setup
+    public void setUp() throws Exception {
+        source = PersonFixture.h2(rows);
+        DataSource target = PersonFixture.emptyH2("chunk_" + rows + "_" + chunkSize, false);
+
+        itemWriter = new PersonJdbcBatchItemWriter();
+        itemWriter.setDataSource(target);
+        itemWriter.setMode(PersonJdbcBatchItemWriter.Mode.UPSERT); // 같은 id 를 다시 쓰기 때문에 반복 실행해도 크기가 같다.
+        itemWriter.setDatabaseType(DatabaseType.H2);
+        itemWriter.afterPropertiesSet();
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(target);
+        MapJobRepositoryFactoryBean repositoryFactory = new MapJobRepositoryFactoryBean(transactionManager);
+        repositoryFactory.afterPropertiesSet();
+        JobRepository jobRepository = repositoryFactory.getObject();
+
+        jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.afterPropertiesSet();
+
+        jobBuilderFactory = new JobBuilderFactory(jobRepository);
+        stepBuilderFactory = new StepBuilderFactory(jobRepository, transactionManager);
+    }
+
+    @Benchmark
+    public JobExecution chunkStep() throws Exception {
+        Step step = stepBuilderFactory.get("chunkSizeStep")
+                .<Person, Person>chunk(chunkSize)
+                .reader(ItemReaderBenchmark.jdbcCursorItemReader(source, ItemReaderBenchmark.FETCH_SIZE))
+                .writer(itemWriter)
+                .build();
+        Job job = jobBuilderFactory.get("chunkSizeJob").start(step).build();
+        JobExecution execution = jobLauncher.run(job, new JobParametersBuilder().addLong("run.id", ++runId).toJobParameters());
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("job failed: " + execution.getAllFailureExceptions());
+        }
+        return execution;
+    }
+}
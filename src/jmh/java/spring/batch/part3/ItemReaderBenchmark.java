@@ -0,0 +1,162 @@
+package spring.batch.part3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.builder.JpaCursorItemReaderBuilder;
+import org.springframework.batch.item.database.support.H2PagingQueryProvider;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.FileSystemResource;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ItemReaderConfiguration 에 있는 5 개의 reader 를 같은 데이터로 비교한다.
+ *
+ * benchmark 1 번 호출 = item 1 개 read 이다.
+ * -> ops/s 가 items/sec 이고, -prof gc 의 gc.alloc.rate.norm 이 item 1 개당 할당량(byte) 이다.
+ * JDBC reader 의 pageSize / fetchSize 는 FETCH_SIZE 로 고정한다.
+ * -> fetchSize 별 비교는 JdbcFetchSizeBenchmark, chunk (commit interval) 크기별 비교는 ChunkSizeBenchmark 에서 한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=ItemReaderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ItemReaderBenchmark {
+
+    static final int FETCH_SIZE = 1000;
+
+    @Param({"custom", "flatFile", "mappedCsv", "jdbcCursor", "jdbcPaging", "jpaCursor"})
+    public String reader;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private ItemStreamReader<Person> itemReader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        itemReader = createReader();
+        if (itemReader instanceof InitializingBean) {
+            ((InitializingBean) itemReader).afterPropertiesSet(); // ItemReaderConfiguration 과 같이 필수값 체크 + 초기화
+        }
+        itemReader.open(new ExecutionContext());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        itemReader.close();
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+    }
+
+    @Benchmark
+    public Person read() throws Exception {
+        Person person = itemReader.read();
+        if (person == null) {
+            // 끝까지 읽었으면 처음부터 다시 읽는다.
+            itemReader.close();
+            itemReader.open(new ExecutionContext());
+            person = itemReader.read();
+        }
+        return person;
+    }
+
+    private ItemStreamReader<Person> createReader() throws Exception {
+        switch (reader) {
+            case "custom":
+                return new CustomItemReader<>(PersonFixture.persons(rows));
+            case "flatFile":
+                return new FlatFileItemReaderBuilder<Person>()
+                        .name("csvFileItemReader")
+                        .encoding("UTF-8")
+                        .linesToSkip(1)
+                        .resource(new FileSystemResource(PersonFixture.csv(rows)))
+                        .delimited()
+                        .names("id", "name", "age", "address")
+                        .fieldSetMapper(fieldSet -> new Person(fieldSet.readInt("id"), fieldSet.readString("name"),
+                                fieldSet.readString("age"), fieldSet.readString("address")))
+                        .build();
+            case "mappedCsv":
+                MappedCsvItemReader<Person> mappedCsvItemReader = new MappedCsvItemReader<>();
+                mappedCsvItemReader.setResource(new FileSystemResource(PersonFixture.csv(rows)));
+                mappedCsvItemReader.setLinesToSkip(1);
+                mappedCsvItemReader.setFieldsMapper(fields -> new Person(fields.readInt(0), fields.readString(1),
+                        fields.readString(2), fields.readString(3)));
+                return mappedCsvItemReader;
+            case "jdbcCursor":
+                return jdbcCursorItemReader(PersonFixture.h2(rows), FETCH_SIZE);
+            case "jdbcPaging":
+                return jdbcPagingItemReader(PersonFixture.h2(rows), FETCH_SIZE);
+            case "jpaCursor":
+                DataSource dataSource = PersonFixture.h2(rows);
+                entityManagerFactory = PersonFixture.entityManagerFactory(dataSource);
+                return new JpaCursorItemReaderBuilder<Person>()
+                        .name("jpaCursorItemReader")
+                        .entityManagerFactory(entityManagerFactory)
+                        .queryString("select p from Person p")
+                        .build();
+            default:
+                throw new IllegalArgumentException("unknown reader: " + reader);
+        }
+    }
+
+    static JdbcCursorItemReader<Person> jdbcCursorItemReader(DataSource dataSource, int fetchSize) {
+        return new JdbcCursorItemReaderBuilder<Person>()
+                .name("jdbcCursorItemReader")
+                .dataSource(dataSource)
+                .fetchSize(fetchSize)
+                .sql("select id, name, age, address from person")
+                .rowMapper((rs, rowNum) -> new Person(
+                        rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)))
+                .build();
+    }
+
+    static JdbcPagingItemReader<Person> jdbcPagingItemReader(DataSource dataSource, int pageSize) {
+        return new JdbcPagingItemReaderBuilder<Person>()
+                .name("jdbcPagingItemReader")
+                .dataSource(dataSource)
+                .pageSize(pageSize)
+                .fetchSize(pageSize)
+                .rowMapper((rs, rowNum) -> new Person(
+                        rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)))
+                .queryProvider(queryProvider())
+                .build();
+    }
+
+    private static H2PagingQueryProvider queryProvider() {
+        H2PagingQueryProvider queryProvider = new H2PagingQueryProvider();
+        queryProvider.setSelectClause("id, name, age, address");
+        queryProvider.setFromClause("from person");
+        queryProvider.setSortKeys(Collections.singletonMap("id", Order.ASCENDING));
+        return queryProvider;
+    }
+}
@@ -0,0 +1,74 @@
+package spring.batch.part3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * fetchSize 를 사용하는 JDBC reader (jdbcCursor, jdbcPaging) 만 fetchSize 별로 비교한다.
+ * (다른 reader 는 fetchSize 를 사용하지 않아서 ItemReaderBenchmark 에서 한번만 잰다.)
+ *
+ * benchmark 1 번 호출 = item 1 개 read 이다. jdbcPaging 은 fetchSize 가 pageSize 이기도 하다.
+ *
+ * ./gradlew jmh -Pjmh.includes=JdbcFetchSizeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JdbcFetchSizeBenchmark {
+
+    @Param({"jdbcCursor", "jdbcPaging"})
+    public String reader;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"10", "100", "1000"})
+    public int fetchSize;
+
+    private ItemStreamReader<Person> itemReader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        itemReader = "jdbcPaging".equals(reader)
+                ? ItemReaderBenchmark.jdbcPagingItemReader(PersonFixture.h2(rows), fetchSize)
+                : ItemReaderBenchmark.jdbcCursorItemReader(PersonFixture.h2(rows), fetchSize);
+        ((InitializingBean) itemReader).afterPropertiesSet();
+        itemReader.open(new ExecutionContext());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        itemReader.close();
+    }
+
+    @Benchmark
+    public Person read() throws Exception {
+        Person person = itemReader.read();
+        if (person == null) {
+            // 끝까지 읽었으면 처음부터 다시 읽는다.
+            itemReader.close();
+            itemReader.open(new ExecutionContext());
+            person = itemReader.read();
+        }
+        return person;
+    }
+}
@@ -0,0 +1,100 @@
+package spring.batch.part3;
+
+import org.hibernate.SessionFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.database.HibernateCursorItemReader;
+import org.springframework.batch.item.database.JpaCursorItemReader;
+import org.springframework.batch.item.database.builder.HibernateCursorItemReaderBuilder;
+import org.springframework.batch.item.database.builder.JpaCursorItemReaderBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * jpaStep 의 두 reader 가 읽는 동안 heap 이 어떻게 변하는지 측정한다.
+ * 일정 간격마다 GC 를 한 뒤 사용중인 heap 을 출력하기 때문에 reader 가 붙잡고 있는 메모리만 보인다.
+ * reader 는 jpaStep 과 같은 query (where p.id > :fromId order by p.id) 로 처음부터 (fromId = 0) 읽는다.
+ *
+ * ./gradlew jpaReaderHeapProfile -Pmode=cursor -Prows=1000000
+ * ./gradlew jpaReaderHeapProfile -Pmode=streaming -Prows=1000000 -PfetchSize=1000
+ *
+ * 출력 : mode,items,usedHeapMb (build/reports/heap/jpa-{mode}-{rows}.csv 에도 남긴다.)
+ */
+public class JpaReaderHeapProfile {
+
+    private static final int SAMPLES = 20;
+    private static final String QUERY = "select p from Person p where p.id > :fromId order by p.id";
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "streaming";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int fetchSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        EntityManagerFactory entityManagerFactory = PersonFixture.entityManagerFactory(PersonFixture.h2(rows));
+        ItemStreamReader<Person> reader = "cursor".equals(mode)
+                ? cursorReader(entityManagerFactory)
+                : streamingReader(entityManagerFactory, fetchSize);
+        reader.open(new ExecutionContext());
+
+        Path report = Paths.get("build", "reports", "heap", "jpa-" + mode + "-" + rows + ".csv");
+        Files.createDirectories(report.getParent());
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        int interval = Math.max(1, rows / SAMPLES);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            print(out, "mode,items,usedHeapMb");
+            print(out, sample(memory, mode, 0));
+
+            int items = 0;
+            while (reader.read() != null) {
+                if (++items % interval == 0) {
+                    print(out, sample(memory, mode, items));
+                }
+            }
+        }
+        reader.close();
+        entityManagerFactory.close();
+    }
+
+    private static String sample(MemoryMXBean memory, String mode, int items) {
+        System.gc();
+        return mode + "," + items + "," + memory.getHeapMemoryUsage().getUsed() / (1024 * 1024);
+    }
+
+    private static void print(PrintWriter out, String line) {
+        System.out.println(line);
+        out.println(line);
+    }
+
+    private static JpaCursorItemReader<Person> cursorReader(EntityManagerFactory entityManagerFactory) throws Exception {
+        JpaCursorItemReader<Person> itemReader = new JpaCursorItemReaderBuilder<Person>()
+                .name("jpaCursorItemReader")
+                .entityManagerFactory(entityManagerFactory)
+                .queryString(QUERY)
+                .parameterValues(Collections.singletonMap("fromId", 0))
+                .build();
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+
+    private static HibernateCursorItemReader<Person> streamingReader(EntityManagerFactory entityManagerFactory,
+                                                                     int fetchSize) throws Exception {
+        HibernateCursorItemReader<Person> itemReader = new HibernateCursorItemReaderBuilder<Person>()
+                .name("jpaStreamingItemReader")
+                .sessionFactory(entityManagerFactory.unwrap(SessionFactory.class))
+                .queryString(QUERY)
+                .parameterValues(Collections.singletonMap("fromId", 0))
+                .useStatelessSession(true)
+                .fetchSize(fetchSize)
+                .build();
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+}
@@ -0,0 +1,116 @@
+package spring.batch.part3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.batch.support.DatabaseType;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 chunk 를 List<Person> 과 PersonColumns 로 read + write 해서 item 당 할당량을 비교한다.
+ *
+ * benchmark 1 번 호출 = CHUNK_SIZE 개의 row 를 읽어서 다른 테이블에 upsert
+ * @OperationsPerInvocation 으로 나눠서 -prof gc 의 gc.alloc.rate.norm 이 row 1 개당 할당량(byte) 이다.
+ * - objects : JdbcCursorItemReader<Person> + PersonJdbcBatchItemWriter.write
+ * - columns : PersonColumnsItemReader + PersonJdbcBatchItemWriter.writeColumns
+ *
+ * ./gradlew jmh -Pjmh.includes=PersonColumnsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PersonColumnsBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int CHUNK_SIZE = 5000;
+
+    private JdbcCursorItemReader<Person> personReader;
+    private PersonColumnsItemReader columnsReader;
+    private PersonJdbcBatchItemWriter writer;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        DataSource source = PersonFixture.h2(ROWS);
+        writer = new PersonJdbcBatchItemWriter();
+        writer.setDataSource(PersonFixture.emptyH2("columns", false));
+        writer.setMode(PersonJdbcBatchItemWriter.Mode.UPSERT);
+        writer.setDatabaseType(DatabaseType.H2);
+        writer.afterPropertiesSet();
+
+        personReader = new JdbcCursorItemReaderBuilder<Person>()
+                .name("jdbcCursorItemReader")
+                .dataSource(source)
+                .fetchSize(CHUNK_SIZE)
+                .sql("select id, name, age, address from person order by id")
+                .rowMapper((rs, rowNum) -> new Person(
+                        rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)))
+                .saveState(false)
+                .build();
+        personReader.afterPropertiesSet();
+        personReader.open(new ExecutionContext());
+
+        columnsReader = new PersonColumnsItemReader();
+        columnsReader.setDataSource(source);
+        columnsReader.setSql("select id, name, age, address from person order by id");
+        columnsReader.setBlockSize(CHUNK_SIZE);
+        columnsReader.setFetchSize(CHUNK_SIZE);
+        columnsReader.setSaveState(false);
+        columnsReader.open(new ExecutionContext());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        personReader.close();
+        columnsReader.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public int objects() throws Exception {
+        List<Person> items = new ArrayList<>(CHUNK_SIZE);
+        Person person;
+        while (items.size() < CHUNK_SIZE && (person = personReader.read()) != null) {
+            items.add(person);
+        }
+        if (items.isEmpty()) { // 테이블 끝까지 읽으면 처음부터 다시 읽는다.
+            personReader.close();
+            personReader.open(new ExecutionContext());
+            return 0;
+        }
+        writer.write(items);
+        return items.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public int columns() throws Exception {
+        PersonColumns columns = columnsReader.read();
+        if (columns == null) {
+            columnsReader.close();
+            columnsReader.open(new ExecutionContext());
+            return 0;
+        }
+        writer.writeColumns(columns);
+        return columns.size();
+    }
+}
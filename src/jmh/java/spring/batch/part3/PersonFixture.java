@@ -0,0 +1,88 @@
+package spring.batch.part3;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * benchmark 에서 공통으로 사용하는 Person 데이터를 만든다.
+ * row 의 내용은 test 의 PersonDataGenerator 가 정한다. 여기서는 benchmark 용 DB 를 만들고 재사용한다.
+ */
+public final class PersonFixture {
+
+    private PersonFixture() {
+    }
+
+    /**
+     * rows 개의 person 이 들어있는 embedded H2 를 만든다.
+     * 같은 rows 로 다시 호출하면 이미 만들어둔 DB 를 그대로 사용한다.
+     */
+    public static DataSource h2(int rows) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:person" + rows + ";DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setDriverClassName("org.h2.Driver");
+
+        JdbcTemplate jdbcTemplate = createSchema(dataSource);
+        Integer count = jdbcTemplate.queryForObject("select count(*) from person", Integer.class);
+        if (count == null || count == 0) {
+            PersonDataGenerator.load(dataSource, rows, false);
+        }
+        return dataSource;
+    }
+
+    /**
+     * writer benchmark 용 빈 person 테이블. mysqlMode 면 H2 를 MySQL 호환 mode 로 띄운다.
+     */
+    public static DataSource emptyH2(String name, boolean mysqlMode) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1" + (mysqlMode ? ";MODE=MySQL" : ""), "sa", "");
+        dataSource.setDriverClassName("org.h2.Driver");
+        createSchema(dataSource).execute("truncate table person");
+        return dataSource;
+    }
+
+    private static JdbcTemplate createSchema(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists person (" +
+                "id bigint primary key auto_increment, name varchar(255), age varchar(255), address varchar(255))");
+        jdbcTemplate.execute("create sequence if not exists person_seq start with 100000000 increment by 50");
+        return jdbcTemplate;
+    }
+
+    /**
+     * test.csv 와 같은 header 를 가진 csv 파일을 임시 디렉토리에 만든다.
+     */
+    public static File csv(int rows) throws IOException {
+        File file = File.createTempFile("person-" + rows + "-", ".csv");
+        file.deleteOnExit();
+        return PersonDataGenerator.writeCsv(file.toPath(), rows).toFile();
+    }
+
+    public static List<Person> persons(int rows) {
+        return PersonDataGenerator.persons(rows);
+    }
+
+    /**
+     * spring boot 없이 Person entity 만 scan 하는 EntityManagerFactory 를 만든다.
+     */
+    public static EntityManagerFactory entityManagerFactory(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Person.class.getPackage().getName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        Properties jpaProperties = new Properties();
+        jpaProperties.setProperty("hibernate.jdbc.batch_size", "500"); // application.yml 과 같은 설정
+        jpaProperties.setProperty("hibernate.order_inserts", "true");
+        factoryBean.setJpaProperties(jpaProperties);
+        factoryBean.afterPropertiesSet();
+        return factoryBean.getObject();
+    }
+}
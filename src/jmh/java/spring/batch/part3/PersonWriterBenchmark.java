@@ -0,0 +1,129 @@
+package spring.batch.part3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Person writer 들을 같은 chunk 로 비교한다.
+ *
+ * benchmark 1 번 호출 = CHUNK_SIZE 개의 Person 을 하나의 transaction 으로 저장 (chunk step 의 write + commit 과 같다.)
+ * @OperationsPerInvocation 으로 나눠서 ops/s 가 rows/sec 이 된다.
+ * db 는 H2 기본 mode 와 MySQL 호환 mode 를 비교한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=PersonWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PersonWriterBenchmark {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"jdbcBatchItemWriter", "multiRowInsert", "multiRowUpsert", "jpaPersist"})
+    public String writer;
+
+    @Param({"h2", "h2MySql"})
+    public String db;
+
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionTemplate transactionTemplate;
+    private ItemWriter<Person> itemWriter;
+    private int nextId;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        boolean mysqlMode = "h2MySql".equals(db);
+        DataSource dataSource = PersonFixture.emptyH2("writer_" + db, mysqlMode);
+        nextId = 0;
+
+        PlatformTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        switch (writer) {
+            case "jdbcBatchItemWriter":
+                JdbcBatchItemWriter<Person> jdbcBatchItemWriter = new JdbcBatchItemWriterBuilder<Person>()
+                        .dataSource(dataSource)
+                        .sql("insert into person (id, name, age, address) values (:id, :name, :age, :address)")
+                        .beanMapped()
+                        .build();
+                jdbcBatchItemWriter.afterPropertiesSet();
+                itemWriter = jdbcBatchItemWriter;
+                break;
+            case "multiRowInsert":
+            case "multiRowUpsert":
+                PersonJdbcBatchItemWriter personWriter = new PersonJdbcBatchItemWriter();
+                personWriter.setDataSource(dataSource);
+                personWriter.setMode("multiRowInsert".equals(writer)
+                        ? PersonJdbcBatchItemWriter.Mode.INSERT : PersonJdbcBatchItemWriter.Mode.UPSERT);
+                personWriter.setDatabaseType(mysqlMode ? DatabaseType.MYSQL : DatabaseType.H2);
+                personWriter.afterPropertiesSet();
+                itemWriter = personWriter;
+                break;
+            case "jpaPersist":
+                entityManagerFactory = PersonFixture.entityManagerFactory(dataSource);
+                itemWriter = new JpaItemWriterBuilder<Person>()
+                        .entityManagerFactory(entityManagerFactory)
+                        .usePersist(true)
+                        .build();
+                transactionManager = new JpaTransactionManager(entityManagerFactory);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown writer: " + writer);
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+            entityManagerFactory = null;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void write() {
+        List<Person> chunk = new ArrayList<>(CHUNK_SIZE);
+        boolean jpa = "jpaPersist".equals(writer);
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            int id = ++nextId;
+            chunk.add(new Person(jpa ? 0 : id, "test name" + id, "20", "서울"));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                itemWriter.write(chunk);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
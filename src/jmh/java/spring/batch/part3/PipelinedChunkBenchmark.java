@@ -0,0 +1,146 @@
+package spring.batch.part3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * chunkProcessingJob 의 chunkBaseStep 과 pipelinedChunkBaseStep 을 같은 입력으로 비교한다.
+ *
+ * read / write 에 I/O 대기 시간을 흉내내는 지연(readLatencyMicros, writeLatencyMicros) 을 줄 수 있다.
+ * 지연이 있으면 pipelined 쪽은 read 와 write commit 이 겹치기 때문에 (read + write) 가 아니라 max(read, write) 에 가까워진다.
+ *
+ * ./gradlew jmh -Pjmh.includes=PipelinedChunkBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PipelinedChunkBenchmark {
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    @Param({"100", "100000"})
+    public int items;
+
+    @Param({"10", "1000"})
+    public int chunkSize;
+
+    @Param({"0", "20"})
+    public int readLatencyMicros;
+
+    @Param({"0", "2000"})
+    public int writeLatencyMicros;
+
+    private JobRepository jobRepository;
+    private SimpleJobLauncher jobLauncher;
+    private JobBuilderFactory jobBuilderFactory;
+    private StepBuilderFactory stepBuilderFactory;
+    private long runId;
+
+    @Setup
+    public void setUp() throws Exception {
+        ResourcelessTransactionManager transactionManager = new ResourcelessTransactionManager();
+        MapJobRepositoryFactoryBean repositoryFactory = new MapJobRepositoryFactoryBean(transactionManager);
+        repositoryFactory.afterPropertiesSet();
+        jobRepository = repositoryFactory.getObject();
+
+        jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.afterPropertiesSet();
+
+        jobBuilderFactory = new JobBuilderFactory(jobRepository);
+        stepBuilderFactory = new StepBuilderFactory(jobRepository, transactionManager);
+    }
+
+    @Benchmark
+    public JobExecution chunkProcessingJob() throws Exception {
+        Job job = jobBuilderFactory.get("chunkProcessingJob")
+                .start(pipelined ? pipelinedStep() : chunkStep())
+                .build();
+        JobExecution execution = jobLauncher.run(job, new JobParametersBuilder().addLong("run.id", ++runId).toJobParameters());
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("job failed: " + execution.getAllFailureExceptions());
+        }
+        return execution;
+    }
+
+    private Step chunkStep() {
+        return stepBuilderFactory.get("chunkBaseStep")
+                .<String, String>chunk(chunkSize)
+                .reader(itemReader())
+                .processor(itemProcessor())
+                .writer(itemWriter())
+                .build();
+    }
+
+    private Step pipelinedStep() {
+        PipelinedItemReader<String, String> pipelinedItemReader = new PipelinedItemReader<>(itemReader(), itemProcessor(), chunkSize * 2);
+        return pipelinedItemReader.applyTo(stepBuilderFactory.get("pipelinedChunkBaseStep")
+                .<String, String>chunk(chunkSize)
+                .reader(pipelinedItemReader)
+                .writer(itemWriter())
+                .build());
+    }
+
+    private ItemReader<String> itemReader() {
+        ListItemReader<String> delegate = new ListItemReader<>(getItems());
+        return () -> {
+            pause(readLatencyMicros);
+            return delegate.read();
+        };
+    }
+
+    private ItemProcessor<String, String> itemProcessor() {
+        return item -> item + ", Spring Batch";
+    }
+
+    private ItemWriter<String> itemWriter() {
+        return chunk -> pause(writeLatencyMicros);
+    }
+
+    private List<String> getItems() {
+        List<String> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            list.add(i + " Hello");
+        }
+        return list;
+    }
+
+    private static void pause(int micros) {
+        if (micros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package spring.batch.support;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 1M 개의 item 을 chunk(10) 으로 처리할 때 JobRepository 의 step update 가 DB 까지 몇번 가는지, 시간이 얼마나 걸리는지 비교한다.
+ * job repository 는 H2 + batch schema 를 사용한다.
+ *
+ * - metadataWrites : 1 번 실행(1M items) 동안 실제로 실행된 update / updateExecutionContext 수
+ *
+ * ./gradlew jmh -Pjmh.includes=CheckpointCoalescingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckpointCoalescingBenchmark {
+
+    private static final int ITEMS = 1_000_000;
+
+    /**
+     * 1 이면 지금처럼 chunk 마다 저장한다.
+     */
+    @Param({"1", "10", "100"})
+    public int everyChunks;
+
+    private JobBuilderFactory jobBuilderFactory;
+    private StepBuilderFactory stepBuilderFactory;
+    private SimpleJobLauncher jobLauncher;
+    private final AtomicInteger writes = new AtomicInteger();
+    private long runId;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class MetadataWrites {
+        public long metadataWrites;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:batch" + everyChunks + ";DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setDriverClassName("org.h2.Driver");
+        new ResourceDatabasePopulator(new ClassPathResource("org/springframework/batch/core/schema-h2.sql")).execute(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        JobRepositoryFactoryBean repositoryFactory = new JobRepositoryFactoryBean();
+        repositoryFactory.setDataSource(dataSource);
+        repositoryFactory.setTransactionManager(transactionManager);
+        repositoryFactory.afterPropertiesSet();
+        JobRepository jobRepository = repositoryFactory.getObject();
+
+        jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.afterPropertiesSet();
+        jobBuilderFactory = new JobBuilderFactory(jobRepository);
+        stepBuilderFactory = new StepBuilderFactory(
+                CoalescingJobRepository.wrap(counting(jobRepository), everyChunks, 0), transactionManager);
+    }
+
+    @Benchmark
+    public JobExecution chunkJob(MetadataWrites metadataWrites) throws Exception {
+        AtomicInteger remaining = new AtomicInteger(ITEMS);
+        ItemReader<Integer> reader = () -> remaining.getAndDecrement() > 0 ? remaining.get() : null;
+
+        Job job = jobBuilderFactory.get("checkpointJob")
+                .start(stepBuilderFactory.get("checkpointStep")
+                        .<Integer, Integer>chunk(10)
+                        .reader(reader)
+                        .writer(items -> { })
+                        .build())
+                .build();
+
+        writes.set(0);
+        JobExecution execution = jobLauncher.run(job, new JobParametersBuilder().addLong("run.id", ++runId).toJobParameters());
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("job failed: " + execution.getAllFailureExceptions());
+        }
+        metadataWrites.metadataWrites += writes.get();
+        return execution;
+    }
+
+    private JobRepository counting(JobRepository jobRepository) {
+        ProxyFactory proxyFactory = new ProxyFactory(jobRepository);
+        proxyFactory.addInterface(JobRepository.class);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            if (invocation.getMethod().getName().startsWith("update")) {
+                writes.incrementAndGet();
+            }
+            return invocation.proceed();
+        });
+        return (JobRepository) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,114 @@
+package spring.batch.support;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JobRepository 가 chunk 마다 하는 ExecutionContext serialize / deserialize 를 serializer 별로 비교한다.
+ *
+ * - small : reader 하나의 restart 정보 (step context 의 일반적인 크기)
+ * - large : partition 정보, 긴 문자열이 들어있는 context
+ * - serializedBytes : serialize 결과의 크기 (SERIALIZED_CONTEXT 에 저장되는 길이)
+ *
+ * ./gradlew jmh -Pjmh.includes=ExecutionContextSerializerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionContextSerializerBenchmark {
+
+    @Param({"json", "binary", "binaryCompressed"})
+    public String serializer;
+
+    @Param({"small", "large"})
+    public String context;
+
+    private ExecutionContextSerializer executionContextSerializer;
+    private Map<String, Object> values;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (serializer) {
+            case "json":
+                executionContextSerializer = new Jackson2ExecutionContextStringSerializer();
+                break;
+            case "binary":
+                executionContextSerializer = new BinaryExecutionContextSerializer();
+                break;
+            case "binaryCompressed":
+                executionContextSerializer = new BinaryExecutionContextSerializer(
+                        new Jackson2ExecutionContextStringSerializer(), true, 512);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown serializer: " + serializer);
+        }
+
+        values = new HashMap<>();
+        values.put("customItemReader.read.count", 12345);
+        values.put("mappedCsvFileItemReader.byte.offset", 987654321L);
+        values.put("batch.taskletType", "org.springframework.batch.core.step.item.ChunkOrientedTasklet");
+        values.put("batch.stepType", "org.springframework.batch.core.step.tasklet.TaskletStep");
+        if ("large".equals(context)) {
+            for (int i = 0; i < 50; i++) {
+                values.put("partition" + i + ".minId", (long) i * 20_000);
+                values.put("partition" + i + ".maxId", (long) (i + 1) * 20_000 - 1);
+                values.put("partition" + i + ".inputFile", "/data/batch/input/person-" + i + ".csv");
+            }
+        }
+        serialized = toBytes(values);
+    }
+
+    @Benchmark
+    public byte[] serialize(SizeCounter sizeCounter) throws IOException {
+        byte[] bytes = toBytes(values);
+        sizeCounter.serializedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public Map<String, Object> deserialize() throws IOException {
+        return executionContextSerializer.deserialize(new ByteArrayInputStream(serialized));
+    }
+
+    private byte[] toBytes(Map<String, Object> map) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        executionContextSerializer.serialize(map, out);
+        return out.toByteArray();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SizeCounter {
+
+        public long serializedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            serializedBytes = 0;
+        }
+    }
+}
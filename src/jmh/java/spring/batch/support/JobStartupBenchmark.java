@@ -0,0 +1,55 @@
+package spring.batch.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.Job;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import spring.batch.ExampleApplication;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * job 하나를 실행하기 위해 application 을 시작하는 시간을 eager(기본) 와 batch.launch.lazy=true 로 비교한다.
+ *
+ * 1 번 호출 = SpringApplication.run + 고른 Job bean 을 꺼내기 + close
+ * job 실행 시간은 빼기 위해 spring.batch.job.enabled=false 로 시작하고, 대신 Job bean 을 직접 꺼내서
+ * JobLauncherApplicationRunner 가 실행 전에 만드는 것과 같은 bean 들이 만들어지게 한다.
+ * 매번 새로운 JVM 상태에 가깝게 보기 위해 fork 를 여러번 한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=JobStartupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(3)
+public class JobStartupBenchmark {
+
+    @Param({"helloJob", "shareJob", "chunkProcessingJob", "itemReaderJob", "itemWriterJob", "itemProcessorJob"})
+    public String job;
+
+    @Param({"false", "true"})
+    public String lazy;
+
+    @Benchmark
+    public Job startup() {
+        try (ConfigurableApplicationContext context = SpringApplication.run(ExampleApplication.class,
+                "--spring.batch.job.names=" + job,
+                "--spring.batch.job.enabled=false",
+                "--batch.launch.lazy=" + lazy,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn")) {
+            return context.getBean(job, Job.class);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package spring.batch.support;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import spring.batch.ExampleApplication;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * remotePartitionedJdbcPagingJob 을 worker JVM 1, 2, 4 개로 실행해서 비교한다.
+ *
+ * worker 수마다 application 을 새로 시작하고, worker 와 같이 붙을 수 있게 build/remote 의 H2 file DB (AUTO_SERVER) 를 사용한다.
+ * 처음 한번은 worker JVM 이 뜨는 시간이 들어가서 버리고, 두번째 실행만 잰다.
+ * JMH 의 fork 안에서 다시 JVM 을 띄우면 측정이 섞여서 main 으로 실행한다.
+ *
+ * ./gradlew remotePartitionBenchmark -Prows=1000000 -Pworkers=1,2,4 -PgridSize=8
+ *
+ * 출력 : workers,rows,gridSize,wallMillis,itemsPerSec
+ */
+public class RemotePartitionBenchmark {
+
+    private static final File DIRECTORY = new File("build/remote");
+    private static final String JOB = "remotePartitionedJdbcPagingJob";
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int[] workers = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 2, 4};
+        int gridSize = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        System.out.println("workers,rows,gridSize,wallMillis,itemsPerSec");
+        for (int worker : workers) {
+            long wallMillis = run(worker, rows, gridSize);
+            System.out.println(worker + "," + rows + "," + gridSize + "," + wallMillis + ","
+                    + rows * 1000L / Math.max(1, wallMillis));
+        }
+    }
+
+    private static long run(int workers, int rows, int gridSize) throws Exception {
+        File database = new File(DIRECTORY, "benchmark-" + workers);
+        FileSystemUtils.deleteRecursively(database);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ExampleApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:file:" + database.getAbsolutePath() + "/batch;AUTO_SERVER=TRUE",
+                "--spring.batch.initialize-schema=always",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.batch.job.enabled=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.spring.batch.part3=warn",
+                "--batch.remote.workers=" + workers,
+                "--batch.remote.log-dir=" + database.getAbsolutePath(),
+                "--batch.remote.worker-args=--logging.level.spring.batch.part3=warn --spring.main.banner-mode=off")) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            jdbcTemplate.update("delete from person");
+            jdbcTemplate.update("insert into person(id, name, age, address) " +
+                    "select x, concat('test name', x), cast(20 + mod(x, 50) as varchar), '서울' " +
+                    "from system_range(1, ?)", rows);
+
+            JobLauncher jobLauncher = context.getBean(JobLauncher.class);
+            Job job = context.getBean(JOB, Job.class);
+            launch(jobLauncher, job, gridSize); // worker JVM 시작
+
+            long start = System.nanoTime();
+            launch(jobLauncher, job, gridSize);
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    private static void launch(JobLauncher jobLauncher, Job job, int gridSize) throws Exception {
+        JobExecution jobExecution = jobLauncher.run(job, new JobParametersBuilder()
+                .addString("gridSize", String.valueOf(gridSize))
+                .addLong("run.id", System.nanoTime())
+                .toJobParameters());
+        if (jobExecution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException(JOB + " 이 " + jobExecution.getStatus() + " 로 끝났다.");
+        }
+    }
+}
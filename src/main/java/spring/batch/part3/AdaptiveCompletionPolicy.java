@@ -0,0 +1,210 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+import org.springframework.util.Assert;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * chunk 하나를 처리하는 시간(read ~ write) 이 targetCommitMillis 에 가까워지도록 chunk size 를 실행 중에 조절한다.
+ *
+ * - 목표보다 많이 빠르면(80% 미만) chunk size 를 1.5 배 늘리고, 많이 느리면(120% 초과) 절반으로 줄인다.
+ * - chunk 처리 중 에러가 나도 절반으로 줄인다.
+ * - 항상 minChunkSize ~ maxChunkSize 사이의 값만 사용한다.
+ * - 바뀐 chunk size 는 step ExecutionContext 에 저장된다.
+ *   재시작하면 그 값으로, 새로 실행하면 이전 JobInstance 의 같은 step 에 저장된 값으로 시작한다.
+ *
+ * 다음 chunk size 는 commit 직전의 ItemStream.update 에서 정해서 그 chunk 와 같은 transaction 으로 저장하고,
+ * commit 이 된 뒤 (afterChunk) 에 적용한다.
+ * -> afterChunk 에서 저장하면 commit 이 끝난 뒤라서 다음 chunk 에서야 저장된다.
+ *
+ * step 에 chunk(policy) 와 함께 ChunkListener, StepExecutionListener, stream 으로도 등록해야 한다.
+ */
+@Slf4j
+public class AdaptiveCompletionPolicy extends CompletionPolicySupport
+        implements ChunkListener, StepExecutionListener, ItemStream {
+
+    public static final String CHUNK_SIZE_KEY = "adaptive.chunk.size";
+
+    private final JobExplorer jobExplorer;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long targetCommitMillis;
+
+    private volatile int chunkSize;
+    private long chunkStartNanos;
+    private int nextChunkSize;
+
+    public AdaptiveCompletionPolicy(final JobExplorer jobExplorer, final int initialChunkSize,
+                                    final int minChunkSize, final int maxChunkSize, final long targetCommitMillis) {
+        Assert.isTrue(minChunkSize > 0 && minChunkSize <= maxChunkSize, "1 <= minChunkSize <= maxChunkSize 이어야 한다.");
+        Assert.isTrue(targetCommitMillis > 0, "targetCommitMillis 는 0 보다 커야 한다.");
+        this.jobExplorer = jobExplorer;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetCommitMillis = targetCommitMillis;
+        this.chunkSize = clamp(initialChunkSize);
+        this.nextChunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public boolean isComplete(final RepeatContext context, final RepeatStatus result) {
+        if (result == null || !result.isContinuable()) {
+            return true;
+        }
+        return isComplete(context);
+    }
+
+    @Override
+    public boolean isComplete(final RepeatContext context) {
+        ChunkSizeContext chunkSizeContext = (ChunkSizeContext) context;
+        return chunkSizeContext.count >= chunkSizeContext.chunkSize;
+    }
+
+    /**
+     * chunk 가 시작할 때의 chunk size 를 고정해서 사용한다. chunk 중간에 size 가 바뀌지 않게 하기 위해서다.
+     */
+    @Override
+    public RepeatContext start(final RepeatContext parent) {
+        return new ChunkSizeContext(parent, chunkSize);
+    }
+
+    @Override
+    public void update(final RepeatContext context) {
+        ((ChunkSizeContext) context).count++;
+    }
+
+    @Override
+    public void beforeStep(final StepExecution stepExecution) {
+        Integer saved = stepExecution.getExecutionContext().containsKey(CHUNK_SIZE_KEY)
+                ? stepExecution.getExecutionContext().getInt(CHUNK_SIZE_KEY)
+                : findLastChunkSize(stepExecution);
+        if (saved != null) {
+            chunkSize = clamp(saved);
+            nextChunkSize = chunkSize;
+            log.info("[{}] 이전 실행의 chunk size {} 로 시작한다.", stepExecution.getStepName(), chunkSize);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(final StepExecution stepExecution) {
+        return null;
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) {
+    }
+
+    /**
+     * chunk 의 transaction 안에서 (commit 직전) 호출된다.
+     * 처리 중인 chunk 가 있으면 그 처리 시간으로 다음 chunk size 를 정해서 저장한다.
+     * step 시작할 때처럼 처리 중인 chunk 가 없으면 지금 chunk size 를 저장한다.
+     */
+    @Override
+    public void update(final ExecutionContext executionContext) {
+        if (chunkStartNanos != 0) {
+            long elapsedMillis = (System.nanoTime() - chunkStartNanos) / 1_000_000;
+            chunkStartNanos = 0;
+            nextChunkSize = chunkSize;
+            if (elapsedMillis < targetCommitMillis * 0.8) {
+                nextChunkSize = clamp((int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(chunkSize * 1.5)));
+            } else if (elapsedMillis > targetCommitMillis * 1.2) {
+                nextChunkSize = clamp(chunkSize / 2);
+            }
+            log.debug("chunk 처리 시간 {}ms (목표 {}ms)", elapsedMillis, targetCommitMillis);
+        }
+        executionContext.putInt(CHUNK_SIZE_KEY, nextChunkSize);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void beforeChunk(final ChunkContext context) {
+        chunkStartNanos = System.nanoTime();
+        nextChunkSize = chunkSize;
+    }
+
+    /**
+     * commit 이 된 chunk 만 update 에서 정한 chunk size 를 적용한다.
+     */
+    @Override
+    public void afterChunk(final ChunkContext context) {
+        adjust(context, nextChunkSize, "chunk 처리 시간");
+    }
+
+    /**
+     * rollback 된 chunk 의 저장 값은 버려지고, 절반으로 줄인 값이 다음 chunk 에서 저장된다.
+     */
+    @Override
+    public void afterChunkError(final ChunkContext context) {
+        chunkStartNanos = 0;
+        adjust(context, clamp(chunkSize / 2), "chunk 처리 중 에러");
+        nextChunkSize = chunkSize;
+    }
+
+    private void adjust(final ChunkContext context, final int next, final String reason) {
+        if (next != chunkSize) {
+            log.info("[{}] {} (목표 {}ms) -> chunk size {} => {}",
+                    context.getStepContext().getStepName(), reason, targetCommitMillis, chunkSize, next);
+            chunkSize = next;
+        }
+    }
+
+    /**
+     * 바로 전 JobInstance 에서 같은 이름의 step 이 마지막으로 저장한 chunk size 를 찾는다.
+     */
+    private Integer findLastChunkSize(final StepExecution stepExecution) {
+        if (jobExplorer == null) {
+            return null;
+        }
+        JobInstance current = stepExecution.getJobExecution().getJobInstance();
+        List<JobInstance> instances = jobExplorer.getJobInstances(current.getJobName(), 0, 2);
+        return instances.stream()
+                .filter(instance -> !instance.getId().equals(current.getId()))
+                .findFirst()
+                .flatMap(instance -> jobExplorer.getJobExecutions(instance).stream()
+                        .max(Comparator.comparing(JobExecution::getId)))
+                .flatMap(jobExecution -> jobExecution.getStepExecutions().stream()
+                        .filter(previous -> previous.getStepName().equals(stepExecution.getStepName()))
+                        .filter(previous -> previous.getExecutionContext().containsKey(CHUNK_SIZE_KEY))
+                        .findFirst())
+                .map(previous -> previous.getExecutionContext().getInt(CHUNK_SIZE_KEY))
+                .orElse(null);
+    }
+
+    private int clamp(final int size) {
+        return Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    }
+
+    private static class ChunkSizeContext extends RepeatContextSupport {
+
+        private final int chunkSize;
+        private int count;
+
+        ChunkSizeContext(final RepeatContext parent, final int chunkSize) {
+            super(parent);
+            this.chunkSize = chunkSize;
+        }
+    }
+}
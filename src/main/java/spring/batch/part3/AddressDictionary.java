@@ -0,0 +1,58 @@
+package spring.batch.part3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * address 문자열을 작은 정수 code 로 바꾼다. (dictionary encoding)
+ * person.sql, test.csv 의 address 는 도시 이름 몇개 뿐이라서 row 마다 String 을 들고 있을 필요가 없다.
+ *
+ * 같은 reader 가 만드는 모든 PersonColumns 가 하나의 dictionary 를 공유한다.
+ * 여러 thread 에서 사용해도 된다. code 는 0 부터 순서대로 할당된다.
+ */
+public class AddressDictionary {
+
+    public static final short NULL_CODE = -1;
+
+    private final Map<String, Short> codes = new ConcurrentHashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public short encode(final String address) {
+        if (address == null) {
+            return NULL_CODE;
+        }
+        Short code = codes.get(address);
+        return code != null ? code : register(address);
+    }
+
+    public String decode(final short code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        synchronized (values) {
+            return values.get(code);
+        }
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    private short register(final String address) {
+        synchronized (values) {
+            Short code = codes.get(address);
+            if (code != null) {
+                return code;
+            }
+            if (values.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("address 종류가 너무 많아서 dictionary 로 저장할 수 없다: " + values.size());
+            }
+            short next = (short) values.size();
+            values.add(address);
+            codes.put(address, next);
+            return next;
+        }
+    }
+}
@@ -2,14 +2,17 @@ package spring.batch.part3;
 
 import io.micrometer.core.instrument.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.batch.item.ItemProcessor;
@@ -32,10 +35,14 @@ public class ChunkProcessingConfiguration {
 
     private final StepBuilderFactory stepBuilderFactory;
 
+    private final JobExplorer jobExplorer;
+
     public ChunkProcessingConfiguration(final JobBuilderFactory jobBuilderFactory,
-                                        final StepBuilderFactory stepBuilderFactory) {
+                                        final StepBuilderFactory stepBuilderFactory,
+                                        final JobExplorer jobExplorer) {
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
+        this.jobExplorer = jobExplorer;
     }
 
     @Bean
@@ -43,23 +50,73 @@ public class ChunkProcessingConfiguration {
         return jobBuilderFactory.get("chunkProcessingJob")
                 .incrementer(new RunIdIncrementer())
                 .start(this.taskBaseStep())
-                .next(this.chunkBaseStep(null)) // 여기가 null 이여도 동작을 하는 이유는 아래에서 @JobScope 를 설정 했기 때문이다.
+                .next(this.chunkBaseStep(null, null, null, null, null)) // 여기가 null 이여도 동작을 하는 이유는 아래에서 @JobScope 를 설정 했기 때문이다.
                 .build();
     }
 
+    /**
+     * chunkSize 는 처음 시작할 때의 크기이다.
+     * 실행 중에는 AdaptiveCompletionPolicy 가 chunk 처리 시간이 targetCommitMillis 에 가까워지도록
+     * minChunkSize ~ maxChunkSize 사이에서 chunk size 를 조절한다.
+     * itemCount 로 읽을 item 수를 정한다. (기본 100)
+     */
     @Bean
     @JobScope
-    public Step chunkBaseStep(@Value("#{jobParameters[chunkSize]}") String chunkSize) {
+    public Step chunkBaseStep(@Value("#{jobParameters[chunkSize]}") String chunkSize,
+                              @Value("#{jobParameters[minChunkSize]}") String minChunkSize,
+                              @Value("#{jobParameters[maxChunkSize]}") String maxChunkSize,
+                              @Value("#{jobParameters[targetCommitMillis]}") String targetCommitMillis,
+                              @Value("#{jobParameters[itemCount]}") String itemCount) {
+        AdaptiveCompletionPolicy completionPolicy = new AdaptiveCompletionPolicy(jobExplorer,
+                StringUtils.isNotEmpty(chunkSize) ? Integer.parseInt(chunkSize) : 10,
+                StringUtils.isNotEmpty(minChunkSize) ? Integer.parseInt(minChunkSize) : 1,
+                StringUtils.isNotEmpty(maxChunkSize) ? Integer.parseInt(maxChunkSize) : 1000,
+                StringUtils.isNotEmpty(targetCommitMillis) ? Long.parseLong(targetCommitMillis) : 1000L);
+
         return stepBuilderFactory.get("chunkBaseStep")
-                .<String, String>chunk(StringUtils.isNotEmpty(chunkSize) ? Integer.parseInt(chunkSize) : 10)
-                .reader(itemReader())
+                .<String, String>chunk(completionPolicy)
+                .reader(itemReader(itemCount))
                 .processor(itemProcessor())
                 .writer(itemWriter())
+                .listener((ChunkListener) completionPolicy)
+                .listener((StepExecutionListener) completionPolicy)
+                .stream(completionPolicy)
+                .build();
+    }
+
+    /**
+     * chunkProcessingJob 과 같은 reader / processor / writer 를 사용하지만
+     * read, process 는 PipelinedItemReader 의 thread 에서, write 는 step thread 에서 동시에 실행된다.
+     */
+    @Bean
+    public Job pipelinedChunkProcessingJob() {
+        return jobBuilderFactory.get("pipelinedChunkProcessingJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.pipelinedChunkBaseStep(null, null, null))
                 .build();
     }
 
-    private ItemReader<String> itemReader() {
-        return new ListItemReader<>(getItems());
+    /**
+     * queueCapacity 는 read / process 단계가 writer 보다 얼마나 앞서서 읽어둘 수 있는지를 정한다. 기본은 chunkSize 의 2배.
+     * itemCount 는 chunkBaseStep 과 같다.
+     */
+    @Bean
+    @JobScope
+    public Step pipelinedChunkBaseStep(@Value("#{jobParameters[chunkSize]}") String chunkSize,
+                                       @Value("#{jobParameters[queueCapacity]}") String queueCapacity,
+                                       @Value("#{jobParameters[itemCount]}") String itemCount) {
+        int size = StringUtils.isNotEmpty(chunkSize) ? Integer.parseInt(chunkSize) : 10;
+        PipelinedItemReader<String, String> pipelinedItemReader = new PipelinedItemReader<>(itemReader(itemCount), itemProcessor(),
+                StringUtils.isNotEmpty(queueCapacity) ? Integer.parseInt(queueCapacity) : size * 2);
+        return pipelinedItemReader.applyTo(stepBuilderFactory.get("pipelinedChunkBaseStep")
+                .<String, String>chunk(size)
+                .reader(pipelinedItemReader)
+                .writer(itemWriter())
+                .build());
+    }
+
+    private ItemReader<String> itemReader(String itemCount) {
+        return new ListItemReader<>(getItems(StringUtils.isNotEmpty(itemCount) ? Integer.parseInt(itemCount) : 100));
     }
 
     private ItemProcessor<String, String> itemProcessor() {
@@ -134,9 +191,13 @@ public class ChunkProcessingConfiguration {
     }
 
     private List<String> getItems() {
-        List<String> items = new ArrayList<>();
+        return getItems(100);
+    }
+
+    private List<String> getItems(int count) {
+        List<String> items = new ArrayList<>(count);
 
-        for (int i = 0; i < 100; i++) {
+        for (int i = 0; i < count; i++) {
             items.add(i + " Hello");
         }
         return items;
@@ -0,0 +1,123 @@
+package spring.batch.part3;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * MappedCsvItemReader 가 읽은 한 줄의 field 위치만 가지고 있는 객체.
+ *
+ * FieldSet 과 다르게 line 을 String 으로 만들지 않고, mapping 된 byte 에서 필요한 field 만 바로 꺼낸다.
+ * -> readInt 는 byte 를 바로 숫자로 바꾸고, readString 을 호출한 field 만 UTF-8 로 decode 한다.
+ * reader 가 매 줄마다 재사용하기 때문에 mapper 밖으로 꺼내서 보관하면 안된다.
+ */
+public class CsvByteFields {
+
+    private ByteBuffer buffer;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * buffer 의 [from, to) 구간을 delimiter 로 나눠서 각 field 의 시작/끝 위치만 기록한다.
+     */
+    void tokenize(final ByteBuffer buffer, final int from, final int to, final byte delimiter) {
+        this.buffer = buffer;
+        this.count = 0;
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == delimiter) {
+                add(start, i);
+                start = i + 1;
+            }
+        }
+        add(start, to);
+    }
+
+    private void add(final int start, final int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    public int getFieldCount() {
+        return count;
+    }
+
+    /**
+     * 숫자 field 는 String 을 거치지 않고 byte 에서 바로 int 로 바꾼다.
+     */
+    public int readInt(final int index) {
+        int from = trimStart(index);
+        int to = trimEnd(index);
+        if (from == to) {
+            throw new NumberFormatException("field " + index + " is empty");
+        }
+
+        boolean negative = buffer.get(from) == '-';
+        int i = negative || buffer.get(from) == '+' ? from + 1 : from;
+        if (i == to) {
+            throw new NumberFormatException("Unparseable number: " + readString(index));
+        }
+
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Unparseable number: " + readString(index));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Number out of range: " + readString(index));
+            }
+        }
+        long result = negative ? -value : value;
+        if (result > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number out of range: " + readString(index));
+        }
+        return (int) result;
+    }
+
+    /**
+     * 이 method 를 호출한 field 만 UTF-8 로 decode 된다.
+     */
+    public String readString(final int index) {
+        int from = trimStart(index);
+        int length = trimEnd(index) - from;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(from + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int trimStart(final int index) {
+        checkIndex(index);
+        int from = starts[index];
+        while (from < ends[index] && buffer.get(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(final int index) {
+        int to = ends[index];
+        while (to > starts[index] && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("There are " + count + " fields but index " + index + " was requested");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package spring.batch.part3;
+
+/**
+ * MappedCsvItemReader 에서 FieldSetMapper 역할을 한다.
+ * fields 는 다음 줄을 읽을 때 재사용되기 때문에 필요한 값은 이 안에서 모두 꺼내야 한다.
+ * @param <T>
+ */
+@FunctionalInterface
+public interface CsvByteFieldsMapper<T> {
+
+    T mapFields(CsvByteFields fields);
+}
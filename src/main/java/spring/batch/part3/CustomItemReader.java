@@ -1,39 +1,84 @@
 package spring.batch.part3;
 
 
-import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ListItemReader 를 custom 하게 만든다면 아래와 같이 만들 수 있다.
+ *
+ * 처음에는 items.remove(0) 으로 하나씩 꺼냈는데, ArrayList 는 remove(0) 할 때마다 뒤의 배열 전체를 앞으로 당긴다.
+ * -> N 개를 다 읽으면 O(N^2) 이 된다.
+ * 지금은 list 는 그대로 두고 index(cursor) 만 옮긴다.
+ * - cursor 는 AtomicInteger 라서 multi-thread step 에서 lock 없이 각자 index 를 하나씩 가져간다.
+ * - 읽은 위치는 ExecutionContext 에 저장되기 때문에 재시작하면 멈춘 위치부터 다시 읽는다.
  * @param <T>
  */
 
-public class CustomItemReader<T> implements ItemReader<T> {
+public class CustomItemReader<T> extends AbstractItemStreamItemReader<T> {
+
+    private static final String READ_COUNT = "read.count";
 
     private final List<T> items;
 
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private boolean saveState = true;
+
     /**
      * List 를 생성자 주입으로 받는다
      * @param items
      */
     public CustomItemReader(final List<T> items) {
         this.items = new ArrayList<>(items);
+        setName("customItemReader");
     }
 
     /**
-     * elements 를 하나씩 읽어서 제거한다.
+     * multi-thread step 처럼 재시작 위치가 의미 없는 경우엔 false 로 설정한다.
+     */
+    public void setSaveState(final boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    /**
+     * cursor 를 하나 증가시키고, 증가 전의 index 에 있는 element 를 반환한다.
      */
     @Override
     public T read() throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
-        if(items.isEmpty() == false) {
-            return items.remove(0);
+        int index = cursor.getAndIncrement();
+        if (index < items.size()) {
+            return items.get(index);
         }
         return null; // null 을 리턴하면 더이상 읽을게 없다는 의미이다.
     }
+
+    /**
+     * 이전 실행에서 저장해둔 위치가 있으면 그 위치부터 읽는다.
+     */
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+        String key = getExecutionContextKey(READ_COUNT);
+        cursor.set(executionContext.containsKey(key) ? executionContext.getInt(key) : 0);
+    }
+
+    /**
+     * chunk 가 commit 될 때마다 호출된다. 다 읽은 뒤에도 cursor 는 계속 증가할 수 있어서 size 로 잘라서 저장한다.
+     */
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (saveState) {
+            executionContext.putInt(getExecutionContextKey(READ_COUNT), Math.min(cursor.get(), items.size()));
+        }
+    }
 }
@@ -0,0 +1,213 @@
+package spring.batch.part3;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.MultiResourceItemReader;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import spring.batch.support.BloomFilterDedupProcessor;
+import spring.batch.support.CachingEnrichmentProcessor;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Configuration
+@Slf4j
+public class ItemProcessorConfiguration {
+
+    private final JobBuilderFactory jobBuilderFactory;
+    private final StepBuilderFactory stepBuilderFactory;
+    private final DataSource dataSource;
+
+    public ItemProcessorConfiguration(JobBuilderFactory jobBuilderFactory,
+                                      StepBuilderFactory stepBuilderFactory,
+                                      DataSource dataSource) {
+        this.jobBuilderFactory = jobBuilderFactory;
+        this.stepBuilderFactory = stepBuilderFactory;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * person 의 address 를 region 테이블의 지역 코드로 바꾼다.
+     * region 테이블과 데이터는 H2 는 person.sql, mysql profile 은 region-mysql.sql 에서 만든다.
+     * -> ./gradlew bootRun --args='--job.name=itemProcessorJob cacheSize=10000'
+     */
+    @Bean
+    public Job itemProcessorJob() throws Exception {
+        return this.jobBuilderFactory.get("itemProcessorJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.regionEnrichmentStep())
+                .build();
+    }
+
+    /**
+     * processor 를 ItemReadListener, ChunkListener 로도 등록해야 chunk 단위로 한번에 조회한다.
+     */
+    @Bean
+    public Step regionEnrichmentStep() throws Exception {
+        CachingEnrichmentProcessor<Person, Person, String, String> processor = regionCodeProcessor(null);
+        return this.stepBuilderFactory.get("regionEnrichmentStep")
+                .<Person, Person>chunk(10)
+                .reader(personItemReader())
+                .processor(processor)
+                .writer(itemWriter())
+                .listener((ItemReadListener<Person>) processor)
+                .listener((ChunkListener) processor)
+                .build();
+    }
+
+    /**
+     * @JobScope 이기 때문에 cache 는 job 이 실행되는 동안 유지되고, job 이 끝나면 버려진다.
+     * step 마다 cache 를 새로 만들고 싶으면 @StepScope 로 바꾸면 된다.
+     */
+    @Bean
+    @JobScope
+    public CachingEnrichmentProcessor<Person, Person, String, String> regionCodeProcessor(
+            @Value("#{jobParameters[cacheSize]}") String cacheSize) {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        return new CachingEnrichmentProcessor<>(
+                "regionCode",
+                StringUtils.isNotEmpty(cacheSize) ? Integer.parseInt(cacheSize) : 10_000,
+                Person::getAddress,
+                addresses -> findRegionCodes(jdbcTemplate, addresses),
+                (person, regionCode) -> new Person(person.getId(), person.getName(), person.getAge(),
+                        regionCode != null ? regionCode : person.getAddress()),
+                Metrics.globalRegistry);
+    }
+
+    /**
+     * 여러 csv 파일에 걸쳐서 중복된 id 의 person 을 걸러내고 person 테이블에 저장한다.
+     * - inputFiles : 읽을 파일 pattern (기본 classpath:test.csv) ex) file:/data/feed-*.csv
+     * - expectedInsertions, falsePositiveRate : Bloom filter 크기 (기본 10000000, 0.01)
+     * - exactCheck=true : filter 가 중복이라고 하면 person 테이블에서 한번 더 확인한다.
+     * - snapshotDir : filter 파일을 둘 directory (기본 java.io.tmpdir)
+     * -> ./gradlew bootRun --args='--job.name=personDedupJob inputFiles=file:/data/feed-*.csv expectedInsertions=100000000'
+     */
+    @Bean
+    public Job personDedupJob() throws Exception {
+        return this.jobBuilderFactory.get("personDedupJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.personDedupStep(null, null, null, null, null))
+                .build();
+    }
+
+    /**
+     * 재시작하면 filter 는 마지막 commit 시점의 파일에서 이어서 사용한다. (BloomFilterDedupProcessor)
+     */
+    @Bean
+    @JobScope
+    public Step personDedupStep(@Value("#{jobParameters[inputFiles]}") String inputFiles,
+                                @Value("#{jobParameters[expectedInsertions]}") String expectedInsertions,
+                                @Value("#{jobParameters[falsePositiveRate]}") String falsePositiveRate,
+                                @Value("#{jobParameters[exactCheck]}") String exactCheck,
+                                @Value("#{jobParameters[snapshotDir]}") String snapshotDir) throws Exception {
+        BloomFilterDedupProcessor<Person> processor = new BloomFilterDedupProcessor<>(Person::getId);
+        processor.setName("personDedup");
+        if (StringUtils.isNotEmpty(expectedInsertions)) {
+            processor.setExpectedInsertions(Long.parseLong(expectedInsertions));
+        }
+        if (StringUtils.isNotEmpty(falsePositiveRate)) {
+            processor.setFalsePositiveRate(Double.parseDouble(falsePositiveRate));
+        }
+        if (Boolean.parseBoolean(exactCheck)) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            processor.setExactCheck(id -> jdbcTemplate.queryForObject(
+                    "select count(*) from person where id = ?", Integer.class, id) > 0);
+        }
+        if (StringUtils.isNotEmpty(snapshotDir)) {
+            processor.setSnapshotDirectory(new File(snapshotDir));
+        }
+        processor.afterPropertiesSet();
+
+        PersonJdbcBatchItemWriter itemWriter = new PersonJdbcBatchItemWriter();
+        itemWriter.setDataSource(dataSource);
+        itemWriter.setMode(PersonJdbcBatchItemWriter.Mode.UPSERT);
+        itemWriter.afterPropertiesSet();
+
+        return this.stepBuilderFactory.get("personDedupStep")
+                .<Person, Person>chunk(1000)
+                .reader(personFeedItemReader(inputFiles))
+                .processor(processor)
+                .writer(itemWriter)
+                .listener((ChunkListener) processor)
+                .listener((StepExecutionListener) processor)
+                .stream(processor)
+                .build();
+    }
+
+    private MultiResourceItemReader<Person> personFeedItemReader(String inputFiles) throws IOException {
+        DefaultLineMapper<Person> lineMapper = new DefaultLineMapper<>();
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+        tokenizer.setNames("id", "name", "age", "address");
+        lineMapper.setLineTokenizer(tokenizer);
+        lineMapper.setFieldSetMapper(fieldSet -> new Person(fieldSet.readInt("id"), fieldSet.readString("name"),
+                fieldSet.readString("age"), fieldSet.readString("address")));
+
+        FlatFileItemReader<Person> delegate = new FlatFileItemReader<>();
+        delegate.setEncoding("UTF-8");
+        delegate.setLinesToSkip(1);
+        delegate.setLineMapper(lineMapper);
+
+        MultiResourceItemReader<Person> itemReader = new MultiResourceItemReader<>();
+        itemReader.setName("personFeedItemReader");
+        itemReader.setResources(new PathMatchingResourcePatternResolver()
+                .getResources(StringUtils.isNotEmpty(inputFiles) ? inputFiles : "classpath:test.csv"));
+        itemReader.setDelegate(delegate);
+        return itemReader;
+    }
+
+    private Map<String, String> findRegionCodes(NamedParameterJdbcTemplate jdbcTemplate, Set<String> addresses) {
+        Map<String, String> regionCodes = new HashMap<>(addresses.size() * 2);
+        jdbcTemplate.query("select address, region_code from region where address in (:addresses)",
+                new MapSqlParameterSource("addresses", addresses),
+                rs -> {
+                    regionCodes.put(rs.getString(1), rs.getString(2));
+                });
+        return regionCodes;
+    }
+
+    private JdbcCursorItemReader<Person> personItemReader() throws Exception {
+        JdbcCursorItemReader<Person> itemReader = new JdbcCursorItemReaderBuilder<Person>()
+                .name("personItemReader")
+                .dataSource(dataSource)
+                .sql("select id, name, age, address from person order by id")
+                .rowMapper((rs, rowNum) -> new Person(
+                        rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)))
+                .build();
+
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+
+    private ItemWriter<Person> itemWriter() {
+        return items -> log.info(items.stream()
+                .map(person -> person.getName() + "(" + person.getAddress() + ")")
+                .collect(Collectors.joining(", ")));
+    }
+}
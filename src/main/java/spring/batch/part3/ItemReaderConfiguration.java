@@ -1,32 +1,61 @@
 package spring.batch.part3;
 
+import io.micrometer.core.instrument.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.AbstractCursorItemReader;
+import org.springframework.batch.item.database.HibernateCursorItemReader;
 import org.springframework.batch.item.database.JdbcCursorItemReader;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
 import org.springframework.batch.item.database.JpaCursorItemReader;
 import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.PagingQueryProvider;
+import org.springframework.batch.item.database.builder.HibernateCursorItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.builder.JpaCursorItemReaderBuilder;
 import org.springframework.batch.item.database.support.SqlPagingQueryProviderFactoryBean;
 import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.LineMapper;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
 import org.springframework.batch.item.file.mapping.DefaultLineMapper;
 import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import spring.batch.support.EscapedFields;
+import spring.batch.support.ExternalSortTasklet;
+import spring.batch.support.RemotePartitioning;
+import spring.batch.support.SortedRunsItemReader;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,29 +69,198 @@ public class ItemReaderConfiguration {
     private final StepBuilderFactory stepBuilderFactory;
     private final DataSource dataSource;
     private final EntityManagerFactory entityManagerFactory;
+    private final Environment environment;
+    private final JobExplorer jobExplorer;
+    private final RemotePartitioning remotePartitioning;
 
     public ItemReaderConfiguration(JobBuilderFactory jobBuilderFactory,
                                    StepBuilderFactory stepBuilderFactory,
                                    DataSource dataSource,
-                                   EntityManagerFactory entityManagerFactory) {
+                                   EntityManagerFactory entityManagerFactory,
+                                   Environment environment,
+                                   JobExplorer jobExplorer,
+                                   RemotePartitioning remotePartitioning) {
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
         this.dataSource = dataSource;
         this.entityManagerFactory = entityManagerFactory;
+        this.environment = environment;
+        this.jobExplorer = jobExplorer;
+        this.remotePartitioning = remotePartitioning;
     }
 
+    /**
+     * 5 개의 step 은 서로 의존하지 않아서 split 으로 동시에 실행한다.
+     * 동시에 몇개의 step 을 실행할지는 splitConcurrency 로 정한다. (기본 1 -> 하나씩 실행)
+     * 모든 flow 가 끝나면 itemReaderJoinStep 이 실행된다.
+     * -> ./gradlew bootRun --args='--job.name=itemReaderJob splitConcurrency=5'
+     *
+     * jdbcCursorStep, jdbcPagingStep, jpaStep 은 이전 실행에서 읽은 id 이후의 row 만 읽는다. (PersonHighWaterMarkListener)
+     * 전체를 다시 읽으려면 fullScan=true 를 넘긴다.
+     * -> ./gradlew bootRun --args='--job.name=itemReaderJob fullScan=true'
+     */
     @Bean
     public Job itemReaderJob() throws Exception {
+        Flow splitFlow = new FlowBuilder<SimpleFlow>("itemReaderSplitFlow")
+                .split(new SplitTaskExecutor("splitConcurrency", 1))
+                .add(flow("customItemReaderStepFlow", this.customItemReaderStep()),
+                        flow("csvFileStepFlow", this.csvFileStep()),
+                        flow("jdbcCursorStepFlow", this.jdbcCursorStep()),
+                        flow("jdbcPagingStepFlow", this.jdbcPagingStep()),
+                        flow("jpaStepFlow", this.jpaStep()))
+                .build();
+
         return this.jobBuilderFactory.get("itemReaderJob")
                 .incrementer(new RunIdIncrementer())
-                .start(this.customItemReaderStep())
-                .next(this.csvFileStep())
-                .next(this.jdbcCursorStep())
-                .next(this.jdbcPagingStep())
-                .next(this.jpaStep())
+                .start(splitFlow)
+                .next(this.itemReaderJoinStep())
+                .end()
+                .build();
+    }
+
+    private Flow flow(String name, Step step) {
+        return new FlowBuilder<SimpleFlow>(name)
+                .start(step)
+                .build();
+    }
+
+    /**
+     * split 의 join 지점. 모든 reader step 이 끝나야 실행된다.
+     */
+    @Bean
+    public Step itemReaderJoinStep() {
+        return this.stepBuilderFactory.get("itemReaderJoinStep")
+                .tasklet((contribution, chunkContext) -> {
+                    log.info("itemReaderJob 의 모든 reader step 이 끝났다.");
+                    return RepeatStatus.FINISHED;
+                })
+                .build();
+    }
+
+    /**
+     * jdbcPagingStep 을 id 구간별로 나눠서 여러 thread 에서 동시에 읽는다.
+     * -> ./gradlew bootRun --args='--job.name=partitionedJdbcPagingJob gridSize=8 poolSize=8'
+     */
+    @Bean
+    public Job partitionedJdbcPagingJob() throws Exception {
+        return this.jobBuilderFactory.get("partitionedJdbcPagingJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.jdbcPagingPartitionStep(null, null))
+                .build();
+    }
+
+    /**
+     * jdbcPagingPartitionStep 과 같은 partition 을 이 JVM 의 thread 가 아니라 worker JVM 들이 실행한다. (RemotePartitioning)
+     * manager 와 worker 는 같은 DB 를 봐야 해서 다른 process 가 붙을 수 있는 DB 로 실행한다.
+     * -> ./gradlew bootRun --args='--job.name=remotePartitionedJdbcPagingJob --spring.datasource.url=jdbc:h2:file:./build/remote/batch;AUTO_SERVER=TRUE --batch.remote.workers=4 gridSize=8'
+     */
+    @Bean
+    public Job remotePartitionedJdbcPagingJob() throws Exception {
+        return this.jobBuilderFactory.get("remotePartitionedJdbcPagingJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.remoteJdbcPagingPartitionStep(null))
+                .build();
+    }
+
+    /**
+     * worker 는 jdbcPagingWorkerStep bean 을 이름으로 찾아서 실행한다.
+     */
+    @Bean
+    @JobScope
+    public Step remoteJdbcPagingPartitionStep(@Value("#{jobParameters[gridSize]}") String gridSize) throws Exception {
+        return this.stepBuilderFactory.get("remoteJdbcPagingPartitionStep")
+                .partitioner("jdbcPagingWorkerStep", new PersonIdRangePartitioner(dataSource))
+                .partitionHandler(remotePartitioning.partitionHandler(
+                        StringUtils.isNotEmpty(gridSize) ? Integer.parseInt(gridSize) : 4))
+                .build();
+    }
+
+    /**
+     * csvFileStep 과 같은 파일을 memory-mapped reader 로 byte 구간을 나눠서 여러 thread 에서 동시에 읽는다.
+     * -> ./gradlew bootRun --args='--job.name=partitionedCsvFileJob inputFile=/data/person.csv gridSize=8'
+     */
+    @Bean
+    public Job partitionedCsvFileJob() {
+        return this.jobBuilderFactory.get("partitionedCsvFileJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.csvFilePartitionStep(null, null, null))
                 .build();
     }
 
+    /**
+     * csv 파일을 id 또는 address 로 정렬한 뒤에 읽는다. 파일이 heap 보다 커도 된다.
+     * - sortBy : id (기본) | address
+     * - memoryBudgetMb : run 하나를 만들 때 사용할 memory (기본 64)
+     * - spillDir : 정렬된 run 파일을 쓸 directory (기본 java.io.tmpdir)
+     * csvSortStep 이 중간에 실패하면 재시작할 때 완료된 run 은 다시 만들지 않는다.
+     * -> ./gradlew bootRun --args='--job.name=sortedCsvFileJob inputFile=/data/person.csv sortBy=address memoryBudgetMb=256'
+     */
+    @Bean
+    public Job sortedCsvFileJob() throws Exception {
+        return this.jobBuilderFactory.get("sortedCsvFileJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.csvSortStep(null, null, null, null))
+                .next(this.sortedCsvStep(null))
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step csvSortStep(@Value("#{jobParameters[inputFile]}") String inputFile,
+                            @Value("#{jobParameters[sortBy]}") String sortBy,
+                            @Value("#{jobParameters[memoryBudgetMb]}") String memoryBudgetMb,
+                            @Value("#{jobParameters[spillDir]}") String spillDir) throws Exception {
+        ExternalSortTasklet<Person> sortTasklet = new ExternalSortTasklet<>(
+                csvFileItemReader(csvResource(inputFile)), personComparator(sortBy),
+                person -> EscapedFields.join(String.valueOf(person.getId()), person.getName(), person.getAge(), person.getAddress()));
+        sortTasklet.setName("personSort");
+        if (StringUtils.isNotEmpty(memoryBudgetMb)) {
+            sortTasklet.setMemoryBudgetBytes(Long.parseLong(memoryBudgetMb) * 1024 * 1024);
+        }
+        if (StringUtils.isNotEmpty(spillDir)) {
+            sortTasklet.setSpillDirectory(new File(spillDir));
+        }
+        sortTasklet.afterPropertiesSet();
+
+        return this.stepBuilderFactory.get("csvSortStep")
+                .tasklet(sortTasklet)
+                .stream(sortTasklet)
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step sortedCsvStep(@Value("#{jobParameters[sortBy]}") String sortBy) {
+        SortedRunsItemReader<Person> itemReader = new SortedRunsItemReader<>(personRunLineMapper(), personComparator(sortBy));
+        itemReader.setSortName("personSort");
+
+        return this.stepBuilderFactory.get("sortedCsvStep")
+                .<Person, Person>chunk(10)
+                .reader(itemReader)
+                .writer(itemWriter())
+                .build();
+    }
+
+    /**
+     * run 파일은 csv 가 아니라 EscapedFields 로 쓴다. -> name 에 , 나 " 가 있어도, null 이어도 그대로 돌아온다.
+     */
+    private LineMapper<Person> personRunLineMapper() {
+        return (line, lineNumber) -> {
+            String[] fields = EscapedFields.split(line);
+            return new Person(Integer.parseInt(fields[0]), fields[1], fields[2], fields[3]);
+        };
+    }
+
+    private Comparator<Person> personComparator(String sortBy) {
+        if (StringUtils.isEmpty(sortBy) || "id".equals(sortBy)) {
+            return Comparator.comparingInt(Person::getId);
+        }
+        if ("address".equals(sortBy)) {
+            return Comparator.comparing(Person::getAddress, Comparator.nullsFirst(Comparator.naturalOrder()));
+        }
+        throw new IllegalArgumentException("sortBy 는 id 또는 address 이다: " + sortBy);
+    }
+
     @Bean
     public Step customItemReaderStep() {
         return this.stepBuilderFactory.get("customItemReaderStep")
@@ -83,47 +281,160 @@ public class ItemReaderConfiguration {
 
     @Bean
     public Step jdbcCursorStep() throws Exception {
+        PersonHighWaterMarkListener highWaterMarkListener = new PersonHighWaterMarkListener(jobExplorer);
         return this.stepBuilderFactory.get("jdbcCursorStep")
                 .<Person, Person>chunk(10)
-                .reader(jdbcCursorItemReader())
+                .reader(jdbcCursorItemReader(null))
                 .writer(itemWriter())
+                .listener((StepExecutionListener) highWaterMarkListener)
+                .listener((ItemWriteListener<Person>) highWaterMarkListener)
                 .build();
     }
 
     @Bean
     public Step jdbcPagingStep() throws Exception {
+        PersonHighWaterMarkListener highWaterMarkListener = new PersonHighWaterMarkListener(jobExplorer);
         return this.stepBuilderFactory.get("jdbcPagingStep")
                 .<Person, Person>chunk(10)
-                .reader(jdbcPagingItemReader())
+                .reader(jdbcPagingItemReader(null))
                 .writer(itemWriter())
+                .listener((StepExecutionListener) highWaterMarkListener)
+                .listener((ItemWriteListener<Person>) highWaterMarkListener)
+                .build();
+    }
+
+    /**
+     * manager step. PersonIdRangePartitioner 가 나눈 구간마다 jdbcPagingWorkerStep 을 하나씩 실행한다.
+     * 각 partition 은 자기만의 StepExecution 을 가지기 때문에, 실패한 partition 만 따로 재시작 된다.
+     */
+    @Bean
+    @JobScope
+    public Step jdbcPagingPartitionStep(@Value("#{jobParameters[gridSize]}") String gridSize,
+                                        @Value("#{jobParameters[poolSize]}") String poolSize) throws Exception {
+        return this.stepBuilderFactory.get("jdbcPagingPartitionStep")
+                .partitioner("jdbcPagingWorkerStep", new PersonIdRangePartitioner(dataSource))
+                .step(jdbcPagingWorkerStep())
+                .gridSize(StringUtils.isNotEmpty(gridSize) ? Integer.parseInt(gridSize) : 4)
+                .taskExecutor(partitionTaskExecutor(poolSize))
                 .build();
     }
 
+    @Bean
+    public Step jdbcPagingWorkerStep() throws Exception {
+        return this.stepBuilderFactory.get("jdbcPagingWorkerStep")
+                .<Person, Person>chunk(10)
+                .reader(jdbcPagingPartitionItemReader(null, null))
+                .writer(itemWriter())
+                .build();
+    }
+
+    /**
+     * partition 을 동시에 몇개까지 실행할지 poolSize 로 제한한다. 없으면 core 수 만큼 실행한다.
+     */
+    private TaskExecutor partitionTaskExecutor(String poolSize) {
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("partition-");
+        taskExecutor.setConcurrencyLimit(StringUtils.isNotEmpty(poolSize)
+                ? Integer.parseInt(poolSize) : Runtime.getRuntime().availableProcessors());
+        return taskExecutor;
+    }
+
+    @Bean
+    @JobScope
+    public Step csvFilePartitionStep(@Value("#{jobParameters[inputFile]}") String inputFile,
+                                     @Value("#{jobParameters[gridSize]}") String gridSize,
+                                     @Value("#{jobParameters[poolSize]}") String poolSize) {
+        return this.stepBuilderFactory.get("csvFilePartitionStep")
+                .partitioner("csvFileWorkerStep", new MappedCsvPartitioner(csvResource(inputFile)))
+                .step(csvFileWorkerStep())
+                .gridSize(StringUtils.isNotEmpty(gridSize) ? Integer.parseInt(gridSize) : 4)
+                .taskExecutor(partitionTaskExecutor(poolSize))
+                .build();
+    }
+
+    @Bean
+    public Step csvFileWorkerStep() {
+        return this.stepBuilderFactory.get("csvFileWorkerStep")
+                .<Person, Person>chunk(10)
+                .reader(mappedCsvFileItemReader(null, null, null))
+                .writer(itemWriter())
+                .build();
+    }
+
+    /**
+     * split 의 flow 로 실행되기 때문에 step 은 @JobScope 로 만들 수 없다. (FlowBuilder 가 시작할 때 step 이름을 꺼낸다.)
+     * 그래서 jobParameters 는 @StepScope reader 에서 받는다.
+     */
     @Bean
     public Step jpaStep() throws Exception {
+        PersonHighWaterMarkListener highWaterMarkListener = new PersonHighWaterMarkListener(jobExplorer);
         return stepBuilderFactory.get("jpaStep")
                 .<Person, Person>chunk(10)
-                .reader(jpaCursorItemReader())
+                .reader(jpaItemReader(null, null, null))
                 .writer(itemWriter())
+                .listener((StepExecutionListener) highWaterMarkListener)
+                .listener((ItemWriteListener<Person>) highWaterMarkListener)
                 .build();
     }
 
-    private JpaCursorItemReader<Person> jpaCursorItemReader() throws Exception {
+    /**
+     * jpaStreaming=true 이면 JpaCursorItemReader 대신 hibernate StatelessSession 으로 읽는다.
+     * 이때 jpaStreamingFetchSize 만큼씩 가져온다. (기본 1000)
+     * fromId 는 PersonHighWaterMarkListener 가 step 시작 전에 넣어준다.
+     */
+    @Bean
+    @StepScope
+    public ItemStreamReader<Person> jpaItemReader(@Value("#{jobParameters[jpaStreaming]}") String jpaStreaming,
+                                                  @Value("#{jobParameters[jpaStreamingFetchSize]}") String jpaStreamingFetchSize,
+                                                  @Value("#{stepExecutionContext[fromId]}") Long fromId) throws Exception {
+        Map<String, Object> parameterValues = fromIdParameter(fromId);
+        return Boolean.parseBoolean(jpaStreaming)
+                ? jpaStreamingItemReader(StringUtils.isNotEmpty(jpaStreamingFetchSize)
+                        ? Integer.parseInt(jpaStreamingFetchSize) : 1000, parameterValues)
+                : jpaCursorItemReader(parameterValues);
+    }
+
+    private JpaCursorItemReader<Person> jpaCursorItemReader(Map<String, Object> parameterValues) throws Exception {
         JpaCursorItemReader<Person> itemReader = new JpaCursorItemReaderBuilder<Person>()
                 .name("jpaCursorItemReader")
                 .entityManagerFactory(entityManagerFactory)
-                .queryString("select p from Person p")
+                .queryString("select p from Person p where p.id > :fromId order by p.id")
+                .parameterValues(parameterValues)
                 .build();
 
         itemReader.afterPropertiesSet();
         return itemReader;
     }
 
-    private JdbcCursorItemReader<Person> jdbcCursorItemReader() throws Exception {
+    /**
+     * JpaCursorItemReader 는 EntityManager 로 읽기 때문에 읽은 entity 와 dirty checking 용 snapshot 이
+     * persistence context(1차 캐시) 에 계속 쌓여서, 테이블이 크면 heap 도 같이 커진다.
+     * StatelessSession 은 1차 캐시가 없어서 읽은 entity 를 보관하지 않는다.
+     * -> fetchSize 만큼씩 forward-only 로 scroll 하면서 읽기 때문에 테이블 크기와 상관 없이 heap 이 일정하다.
+     */
+    private HibernateCursorItemReader<Person> jpaStreamingItemReader(int fetchSize,
+                                                                    Map<String, Object> parameterValues) throws Exception {
+        HibernateCursorItemReader<Person> itemReader = new HibernateCursorItemReaderBuilder<Person>()
+                .name("jpaStreamingItemReader")
+                .sessionFactory(entityManagerFactory.unwrap(SessionFactory.class))
+                .queryString("select p from Person p where p.id > :fromId order by p.id")
+                .parameterValues(parameterValues)
+                .useStatelessSession(true)
+                .fetchSize(fetchSize)
+                .build();
+
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<Person> jdbcCursorItemReader(@Value("#{stepExecutionContext[fromId]}") Long fromId) throws Exception {
         final JdbcCursorItemReader<Person> itemReader = new JdbcCursorItemReaderBuilder<Person>()
                 .name("jdbcCursorItemReader") // name 설정
                 .dataSource(dataSource) // data source 는 생성자로 주입 받음
-                .sql("select id, name, age, address from person") // Query 작성
+                .fetchSize(cursorFetchSize()) // MySQL 이면 전체를 buffering 하지 않고 streaming 으로 읽는다.
+                .sql("select id, name, age, address from person where id > ? order by id") // Query 작성. 재시작 할 때 같은 순서로 읽도록 정렬한다.
+                .queryArguments(fromId != null ? fromId : 0L) // high-water mark 이후의 row 만 읽는다.
                 .rowMapper((rs, rowNum) -> new Person( // column index 는 0 번 부터가 아닌 1번부터 시작한다.
                         rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4))) // 조회된 데이터를 Person 객체에 매핑
                 .build();
@@ -132,7 +443,21 @@ public class ItemReaderConfiguration {
         return itemReader;
     }
 
-    private JdbcPagingItemReader<Person> jdbcPagingItemReader() throws Exception {
+    /**
+     * mysql profile 이면 MySqlStreamingCheck 참고. 그 외(H2) 에는 지금처럼 driver 기본값을 사용한다.
+     */
+    private int cursorFetchSize() {
+        if (!environment.acceptsProfiles(Profiles.of("mysql"))) {
+            return AbstractCursorItemReader.VALUE_NOT_SET;
+        }
+        String jdbcUrl = environment.getProperty("spring.datasource.hikari.jdbc-url",
+                environment.getProperty("spring.datasource.url", ""));
+        return MySqlStreamingCheck.streamingFetchSize(jdbcUrl, 1000);
+    }
+
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Person> jdbcPagingItemReader(@Value("#{stepExecutionContext[fromId]}") Long fromId) throws Exception {
 
         final JdbcPagingItemReader<Person> itemReader = new JdbcPagingItemReaderBuilder<Person>()
                 .name("jdbcPagingItemReader")
@@ -141,18 +466,57 @@ public class ItemReaderConfiguration {
                 .fetchSize(10)
                 .rowMapper((rs, rowNum) -> new Person( // column index 는 0 번 부터가 아닌 1번부터 시작한다.
                         rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4))) // 조회된 데이터를 Person 객체에 매핑
-                .queryProvider(createQueryProvider())
+                .queryProvider(createQueryProvider("where id > :fromId"))
+                .parameterValues(fromIdParameter(fromId))
                 .build();
 
         itemReader.afterPropertiesSet();
         return itemReader;
     }
 
+    /**
+     * partition 의 ExecutionContext 에 들어있는 minId ~ maxId 구간만 읽는 reader.
+     * 읽은 위치는 partition 별 StepExecution 에 저장된다.
+     */
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<Person> jdbcPagingPartitionItemReader(@Value("#{stepExecutionContext[minId]}") Long minId,
+                                                                      @Value("#{stepExecutionContext[maxId]}") Long maxId) throws Exception {
+        Map<String, Object> parameterValues = new HashMap<>(2);
+        parameterValues.put(PersonIdRangePartitioner.MIN_ID, minId);
+        parameterValues.put(PersonIdRangePartitioner.MAX_ID, maxId);
+
+        final JdbcPagingItemReader<Person> itemReader = new JdbcPagingItemReaderBuilder<Person>()
+                .name("jdbcPagingPartitionItemReader")
+                .dataSource(dataSource)
+                .pageSize(10)
+                .fetchSize(10)
+                .rowMapper((rs, rowNum) -> new Person(
+                        rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)))
+                .queryProvider(createQueryProvider("where id between :minId and :maxId"))
+                .parameterValues(parameterValues)
+                .build();
+
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+
+    private Map<String, Object> fromIdParameter(Long fromId) {
+        Map<String, Object> parameterValues = new HashMap<>(1);
+        parameterValues.put(PersonHighWaterMarkListener.FROM_ID, fromId != null ? fromId.intValue() : 0);
+        return parameterValues;
+    }
+
     public PagingQueryProvider createQueryProvider() throws Exception {
+        return createQueryProvider(null);
+    }
+
+    public PagingQueryProvider createQueryProvider(String whereClause) throws Exception {
         SqlPagingQueryProviderFactoryBean queryProvider = new SqlPagingQueryProviderFactoryBean();
         queryProvider.setDataSource(dataSource);
         queryProvider.setSelectClause("id, name, age, address");
         queryProvider.setFromClause("from person");
+        queryProvider.setWhereClause(whereClause);
 
         Map<String, Order> sortKeys = new HashMap<>(1);
         sortKeys.put("id", Order.ASCENDING);
@@ -164,6 +528,23 @@ public class ItemReaderConfiguration {
     }
 
     private FlatFileItemReader<Person> csvFileItemReader() throws Exception {
+        return csvFileItemReader(new ClassPathResource("test.csv"));
+    }
+
+    private FlatFileItemReader<Person> csvFileItemReader(Resource resource) throws Exception {
+        FlatFileItemReader<Person> itemReader = new FlatFileItemReaderBuilder<Person>()
+                .name("csvFileItemReader")
+                .encoding("UTF-8")
+                .linesToSkip(1)
+                .resource(resource)
+                .lineMapper(personLineMapper())
+                .build();
+
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+
+    private DefaultLineMapper<Person> personLineMapper() {
         DefaultLineMapper<Person> lineMapper = new DefaultLineMapper<>();
         DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
         tokenizer.setNames("id", "name", "age", "address");
@@ -176,19 +557,36 @@ public class ItemReaderConfiguration {
             String address = fileSet.readString("address");
             return new Person(id, name, age, address);
         });
+        return lineMapper;
+    }
 
-        FlatFileItemReader<Person> itemReader = new FlatFileItemReaderBuilder<Person>()
-                .name("csvFileItemReader")
-                .encoding("UTF-8")
-                .linesToSkip(1)
-                .resource(new ClassPathResource("test.csv"))
-                .lineMapper(lineMapper)
-                .build();
-
-        itemReader.afterPropertiesSet();
+    /**
+     * csvFileItemReader 의 lineMapper 와 같은 mapping 을 byte 위에서 바로 한다.
+     * partition 이 없이 실행되면 startOffset 0, endOffset -1(파일 끝) 으로 전체를 읽는다.
+     */
+    @Bean
+    @StepScope
+    public MappedCsvItemReader<Person> mappedCsvFileItemReader(@Value("#{jobParameters[inputFile]}") String inputFile,
+                                                               @Value("#{stepExecutionContext[startOffset]}") Long startOffset,
+                                                               @Value("#{stepExecutionContext[endOffset]}") Long endOffset) {
+        MappedCsvItemReader<Person> itemReader = new MappedCsvItemReader<>();
+        itemReader.setName("mappedCsvFileItemReader");
+        itemReader.setResource(csvResource(inputFile));
+        itemReader.setLinesToSkip(1);
+        itemReader.setStartOffset(startOffset != null ? startOffset : 0);
+        itemReader.setEndOffset(endOffset != null ? endOffset : -1);
+        itemReader.setFieldsMapper(fields -> new Person(
+                fields.readInt(0), fields.readString(1), fields.readString(2), fields.readString(3)));
         return itemReader;
     }
 
+    /**
+     * memory-mapping 은 파일 시스템에 있는 파일만 가능하다. inputFile 이 없으면 classpath 의 test.csv 를 사용한다.
+     */
+    private Resource csvResource(String inputFile) {
+        return StringUtils.isNotEmpty(inputFile) ? new FileSystemResource(inputFile) : new ClassPathResource("test.csv");
+    }
+
     private ItemWriter<Person> itemWriter() {
         return items -> log.info(items.stream()
                 .map(Person::getName)
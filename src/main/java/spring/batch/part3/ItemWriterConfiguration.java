@@ -0,0 +1,272 @@
+package spring.batch.part3;
+
+import io.micrometer.core.instrument.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.JobScope;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.JpaItemWriter;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import spring.batch.support.BisectingItemWriter;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@Slf4j
+public class ItemWriterConfiguration {
+
+    private final JobBuilderFactory jobBuilderFactory;
+    private final StepBuilderFactory stepBuilderFactory;
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ItemWriterConfiguration(JobBuilderFactory jobBuilderFactory,
+                                   StepBuilderFactory stepBuilderFactory,
+                                   DataSource dataSource,
+                                   EntityManagerFactory entityManagerFactory) {
+        this.jobBuilderFactory = jobBuilderFactory;
+        this.stepBuilderFactory = stepBuilderFactory;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * test.csv 를 읽어서 person 테이블에 저장한다.
+     * -> ./gradlew bootRun --args='--job.name=itemWriterJob writerMode=jpa'
+     */
+    @Bean
+    public Job itemWriterJob() throws Exception {
+        return this.jobBuilderFactory.get("itemWriterJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.personWriterStep(null, null, null))
+                .build();
+    }
+
+    /**
+     * writerMode
+     * - upsert (기본) : multi-row upsert. csv 의 id 를 그대로 사용하고, 같은 id 가 있으면 update 한다.
+     * - insert : multi-row insert. 같은 id 가 이미 있으면 실패한다.
+     * - jpa : JpaItemWriter 로 persist 한다. id 는 person_seq 에서 새로 할당 받는다.
+     *
+     * skipLimit 을 주면 insert / upsert 에서 제약조건 위반으로 실패한 row 를 BisectingItemWriter 로 찾아서 skip 한다.
+     * -> ./gradlew bootRun --args='--job.name=itemWriterJob writerMode=insert skipLimit=100'
+     */
+    @Bean
+    @JobScope
+    public Step personWriterStep(@Value("#{jobParameters[writerMode]}") String writerMode,
+                                 @Value("#{jobParameters[chunkSize]}") String chunkSize,
+                                 @Value("#{jobParameters[skipLimit]}") String skipLimit) throws Exception {
+        boolean jpa = "jpa".equalsIgnoreCase(writerMode);
+        SimpleStepBuilder<Person, Person> builder = this.stepBuilderFactory.get("personWriterStep")
+                .<Person, Person>chunk(StringUtils.isNotEmpty(chunkSize) ? Integer.parseInt(chunkSize) : 500)
+                .reader(csvFileItemReader())
+                .processor(jpa ? newPersonProcessor() : item -> item);
+        if (jpa) {
+            return builder.writer(jpaItemWriter()).build();
+        }
+
+        ItemWriter<Person> itemWriter = jdbcBatchItemWriter("insert".equalsIgnoreCase(writerMode)
+                ? PersonJdbcBatchItemWriter.Mode.INSERT : PersonJdbcBatchItemWriter.Mode.UPSERT);
+        int limit = StringUtils.isNotEmpty(skipLimit) ? Integer.parseInt(skipLimit) : 0;
+        if (limit <= 0) {
+            return builder.writer(itemWriter).build(); // 지금처럼 첫번째 실패에서 step 이 실패한다.
+        }
+        BisectingItemWriter<Person> bisectingItemWriter = new BisectingItemWriter<>(itemWriter, dataSource,
+                e -> e instanceof DataIntegrityViolationException, limit);
+        return bisectingItemWriter.applyTo(builder.writer(bisectingItemWriter).build());
+    }
+
+    /**
+     * person 테이블을 test.csv 와 같은 형식(id,이름,나이,거주지) 의 파일로 내보낸다.
+     * - outputDir : 파일을 만들 directory (기본 ./export)
+     * - compression : gzip 이면 .csv.gz 로 압축한다.
+     * - maxRowsPerFile, maxBytesPerFile : 넘으면 다음 파일로 넘어간다.
+     * - threads : 2 이상이면 multi-thread step 으로 실행한다. (재시작 정보는 저장하지 않는다.)
+     * -> ./gradlew bootRun --args='--job.name=personExportJob compression=gzip maxRowsPerFile=1000000 threads=4'
+     */
+    @Bean
+    public Job personExportJob() throws Exception {
+        return this.jobBuilderFactory.get("personExportJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.personExportStep(null, null, null, null, null, null))
+                .build();
+    }
+
+    @Bean
+    @JobScope
+    public Step personExportStep(@Value("#{jobParameters[outputDir]}") String outputDir,
+                                 @Value("#{jobParameters[compression]}") String compression,
+                                 @Value("#{jobParameters[maxRowsPerFile]}") String maxRowsPerFile,
+                                 @Value("#{jobParameters[maxBytesPerFile]}") String maxBytesPerFile,
+                                 @Value("#{jobParameters[threads]}") String threads,
+                                 @Value("#{jobParameters[chunkSize]}") String chunkSize) throws Exception {
+        int threadCount = StringUtils.isNotEmpty(threads) ? Integer.parseInt(threads) : 1;
+        int size = StringUtils.isNotEmpty(chunkSize) ? Integer.parseInt(chunkSize) : 1000;
+
+        RollingFileItemWriter<Person> itemWriter = new RollingFileItemWriter<>();
+        itemWriter.setName("personExportItemWriter");
+        itemWriter.setDirectory(new File(StringUtils.isNotEmpty(outputDir) ? outputDir : "export"));
+        itemWriter.setFilePrefix("person");
+        itemWriter.setHeader("id,이름,나이,거주지");
+        itemWriter.setLineAggregator(person -> person.getId() + "," + csvField(person.getName()) + ","
+                + csvField(person.getAge()) + "," + csvField(person.getAddress()));
+        itemWriter.setCompression("gzip".equalsIgnoreCase(compression)
+                ? RollingFileItemWriter.Compression.GZIP : RollingFileItemWriter.Compression.NONE);
+        if (StringUtils.isNotEmpty(maxRowsPerFile)) {
+            itemWriter.setMaxRowsPerFile(Long.parseLong(maxRowsPerFile));
+        }
+        if (StringUtils.isNotEmpty(maxBytesPerFile)) {
+            itemWriter.setMaxBytesPerFile(Long.parseLong(maxBytesPerFile));
+        }
+        itemWriter.setSaveState(threadCount == 1);
+
+        SimpleStepBuilder<Person, Person> builder = this.stepBuilderFactory.get("personExportStep")
+                .<Person, Person>chunk(size)
+                .reader(personPagingItemReader(size, threadCount == 1))
+                .writer(itemWriter);
+        if (threadCount > 1) {
+            SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("export-");
+            taskExecutor.setConcurrencyLimit(threadCount);
+            builder.taskExecutor(taskExecutor).throttleLimit(threadCount);
+        }
+        return builder.build();
+    }
+
+    /**
+     * JdbcPagingItemReader 는 read 가 synchronized 라서 multi-thread step 에서도 사용할 수 있다.
+     */
+    private JdbcPagingItemReader<Person> personPagingItemReader(int pageSize, boolean saveState) throws Exception {
+        Map<String, Order> sortKeys = new HashMap<>(1);
+        sortKeys.put("id", Order.ASCENDING);
+
+        JdbcPagingItemReader<Person> itemReader = new JdbcPagingItemReaderBuilder<Person>()
+                .name("personExportItemReader")
+                .dataSource(dataSource)
+                .pageSize(pageSize)
+                .fetchSize(pageSize)
+                .selectClause("id, name, age, address")
+                .fromClause("from person")
+                .sortKeys(sortKeys)
+                .rowMapper((rs, rowNum) -> new Person(
+                        rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)))
+                .saveState(saveState)
+                .build();
+
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+
+    /**
+     * 구분자, 따옴표, 줄바꿈이 있는 값만 따옴표로 감싼다.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * person 테이블을 PersonColumns 로 읽어서 다시 upsert 한다. row 마다 Person 을 만들지 않는다.
+     * -> ./gradlew bootRun --args='--job.name=columnarPersonJob chunkSize=5000'
+     */
+    @Bean
+    public Job columnarPersonJob() throws Exception {
+        return this.jobBuilderFactory.get("columnarPersonJob")
+                .incrementer(new RunIdIncrementer())
+                .start(this.columnarPersonStep(null))
+                .build();
+    }
+
+    /**
+     * item 하나가 chunkSize 개의 row 를 가진 PersonColumns 라서 chunk(1) 이 곧 commit interval chunkSize 이다.
+     */
+    @Bean
+    @JobScope
+    public Step columnarPersonStep(@Value("#{jobParameters[chunkSize]}") String chunkSize) throws Exception {
+        PersonColumnsItemReader itemReader = new PersonColumnsItemReader();
+        itemReader.setDataSource(dataSource);
+        itemReader.setSql("select id, name, age, address from person order by id");
+        itemReader.setBlockSize(StringUtils.isNotEmpty(chunkSize) ? Integer.parseInt(chunkSize) : 1000);
+
+        return this.stepBuilderFactory.get("columnarPersonStep")
+                .<PersonColumns, PersonColumns>chunk(1)
+                .reader(itemReader)
+                .writer(columnsItemWriter())
+                .build();
+    }
+
+    private ItemWriter<PersonColumns> columnsItemWriter() throws Exception {
+        PersonJdbcBatchItemWriter itemWriter = jdbcBatchItemWriter(PersonJdbcBatchItemWriter.Mode.UPSERT);
+        return items -> items.forEach(itemWriter::writeColumns);
+    }
+
+    private PersonJdbcBatchItemWriter jdbcBatchItemWriter(PersonJdbcBatchItemWriter.Mode mode) throws Exception {
+        PersonJdbcBatchItemWriter itemWriter = new PersonJdbcBatchItemWriter();
+        itemWriter.setDataSource(dataSource);
+        itemWriter.setMode(mode);
+        itemWriter.afterPropertiesSet();
+        return itemWriter;
+    }
+
+    /**
+     * persist 는 새로운 entity 만 저장할 수 있어서 id 가 0 인 Person 으로 바꿔준다.
+     */
+    private ItemProcessor<Person, Person> newPersonProcessor() {
+        return item -> new Person(0, item.getName(), item.getAge(), item.getAddress());
+    }
+
+    /**
+     * usePersist 를 사용하면 merge 처럼 select 를 먼저 하지 않는다.
+     * hibernate.jdbc.batch_size 만큼 insert 가 batch 로 묶인다. (application.yml)
+     */
+    private ItemWriter<Person> jpaItemWriter() throws Exception {
+        JpaItemWriter<Person> itemWriter = new JpaItemWriterBuilder<Person>()
+                .entityManagerFactory(entityManagerFactory)
+                .usePersist(true)
+                .build();
+
+        itemWriter.afterPropertiesSet();
+        return itemWriter;
+    }
+
+    private FlatFileItemReader<Person> csvFileItemReader() throws Exception {
+        FlatFileItemReader<Person> itemReader = new FlatFileItemReaderBuilder<Person>()
+                .name("personCsvFileItemReader")
+                .encoding("UTF-8")
+                .linesToSkip(1)
+                .resource(new ClassPathResource("test.csv"))
+                .delimited()
+                .names("id", "name", "age", "address")
+                .fieldSetMapper(fieldSet -> new Person(fieldSet.readInt("id"), fieldSet.readString("name"),
+                        fieldSet.readString("age"), fieldSet.readString("address")))
+                .build();
+
+        itemReader.afterPropertiesSet();
+        return itemReader;
+    }
+}
@@ -0,0 +1,218 @@
+package spring.batch.part3;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ParseException;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FlatFileItemReader 대신 사용할 수 있는 memory-mapped csv reader.
+ *
+ * FlatFileItemReader 는 한 줄마다 String -> String[] -> FieldSet -> Person 을 만든다.
+ * 이 reader 는 FileChannel.map 으로 파일을 mapping 한 뒤 byte 위에서 바로 delimiter 위치만 찾고,
+ * mapper 가 읽어가는 field 만 decode 한다. (CsvByteFields 참고)
+ *
+ * - startOffset ~ endOffset 을 주면 그 구간에서 시작하는 줄만 읽는다. -> MappedCsvPartitioner 로 파일 하나를 여러 thread 가 나눠 읽는다.
+ * - 읽은 위치는 byte offset 으로 ExecutionContext 에 저장되고, 재시작하면 그 offset 부터 읽는다.
+ * - 따옴표(") 로 감싼 field 는 지원하지 않는다. test.csv 처럼 단순한 csv 만 대상으로 한다.
+ * - FlatFileItemReader 와 마찬가지로 thread-safe 하지 않다. 여러 thread 로 읽으려면 partition 을 사용한다.
+ * @param <T>
+ */
+public class MappedCsvItemReader<T> extends AbstractItemStreamItemReader<T> {
+
+    private static final String BYTE_OFFSET = "byte.offset";
+
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final CsvByteFields fields = new CsvByteFields();
+
+    private Resource resource;
+    private CsvByteFieldsMapper<T> fieldsMapper;
+    private byte delimiter = ',';
+    private int linesToSkip;
+    private long startOffset;
+    private long endOffset = -1;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private boolean saveState = true;
+
+    private FileChannel channel;
+    private long fileLength;
+    private long end;
+    private MappedByteBuffer buffer;
+    private long bufferBase;
+    private long position;
+
+    public MappedCsvItemReader() {
+        setName("mappedCsvItemReader");
+    }
+
+    public void setResource(final Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setFieldsMapper(final CsvByteFieldsMapper<T> fieldsMapper) {
+        this.fieldsMapper = fieldsMapper;
+    }
+
+    public void setDelimiter(final char delimiter) {
+        Assert.isTrue(delimiter < 0x80, "delimiter 는 ASCII 문자만 사용할 수 있다.");
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * 파일의 처음부터 읽을 때(startOffset == 0) 만 적용된다. header 를 건너뛰는 용도.
+     */
+    public void setLinesToSkip(final int linesToSkip) {
+        this.linesToSkip = linesToSkip;
+    }
+
+    /**
+     * 줄의 시작 위치여야 한다.
+     */
+    public void setStartOffset(final long startOffset) {
+        this.startOffset = startOffset;
+    }
+
+    /**
+     * 이 위치보다 앞에서 시작하는 줄까지 읽는다. -1 이면 파일 끝까지 읽는다.
+     */
+    public void setEndOffset(final long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * 한번에 mapping 하는 크기. 한 줄이 이 크기보다 길면 읽을 수 없다.
+     */
+    public void setWindowSize(final int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public void setSaveState(final boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+        Assert.notNull(resource, "resource 는 필수값 이다.");
+        Assert.notNull(fieldsMapper, "fieldsMapper 는 필수값 이다.");
+
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            fileLength = channel.size();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open " + resource, e);
+        }
+        end = endOffset < 0 ? fileLength : Math.min(endOffset, fileLength);
+        buffer = null;
+
+        String key = getExecutionContextKey(BYTE_OFFSET);
+        if (executionContext.containsKey(key)) {
+            position = executionContext.getLong(key);
+            return;
+        }
+
+        position = startOffset;
+        if (startOffset == 0) {
+            try {
+                for (int i = 0; i < linesToSkip && position < end; i++) {
+                    position = nextLine(findLineEnd(position));
+                }
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to skip lines in " + resource, e);
+            }
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (position < end) {
+            long lineEnd = findLineEnd(position);
+            long lineStart = position;
+            position = nextLine(lineEnd);
+
+            int from = (int) (lineStart - bufferBase);
+            int to = (int) (lineEnd - bufferBase);
+            if (to > from && buffer.get(to - 1) == '\r') {
+                to--;
+            }
+            if (to == from) {
+                continue; // 빈 줄은 건너뛴다.
+            }
+
+            fields.tokenize(buffer, from, to, delimiter);
+            try {
+                return fieldsMapper.mapFields(fields);
+            } catch (RuntimeException e) {
+                throw new ParseException("Parsing error at byte offset " + lineStart + " in " + resource, e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (saveState) {
+            executionContext.putLong(getExecutionContextKey(BYTE_OFFSET), position);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        super.close();
+        buffer = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to close " + resource, e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * lineStart 부터 '\n' 위치(없으면 파일 끝) 를 찾는다.
+     * 현재 mapping 된 window 안에서 줄이 끝나지 않으면 lineStart 부터 다시 mapping 한다.
+     */
+    private long findLineEnd(final long lineStart) throws IOException {
+        if (buffer == null || lineStart < bufferBase || lineStart >= bufferBase + buffer.limit()) {
+            map(lineStart);
+        }
+
+        while (true) {
+            int limit = buffer.limit();
+            for (int i = (int) (lineStart - bufferBase); i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return bufferBase + i;
+                }
+            }
+            if (bufferBase + limit == fileLength) {
+                return fileLength;
+            }
+            if (bufferBase == lineStart) {
+                throw new ParseException("Line at byte offset " + lineStart + " is longer than window size " + windowSize);
+            }
+            map(lineStart);
+        }
+    }
+
+    private long nextLine(final long lineEnd) {
+        return lineEnd < fileLength ? lineEnd + 1 : fileLength;
+    }
+
+    private void map(final long offset) throws IOException {
+        long size = Math.min(windowSize, fileLength - offset);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        bufferBase = offset;
+    }
+}
@@ -0,0 +1,84 @@
+package spring.batch.part3;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * csv 파일 하나를 gridSize 개의 byte 구간으로 나눈다.
+ * 구간의 경계는 항상 '\n' 바로 다음 위치로 맞춰서, 한 줄이 두 partition 에 걸치지 않게 한다.
+ * 각 구간은 startOffset, endOffset 으로 partition 의 ExecutionContext 에 들어간다.
+ */
+public class MappedCsvPartitioner implements Partitioner {
+
+    public static final String START_OFFSET = "startOffset";
+    public static final String END_OFFSET = "endOffset";
+
+    private final Resource resource;
+
+    public MappedCsvPartitioner(final Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(final int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>(gridSize);
+
+        try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            long targetSize = Math.max(1, length / gridSize);
+
+            long start = 0;
+            int number = 0;
+            while (start < length) {
+                long end = number == gridSize - 1 ? length : alignToNextLine(channel, start + targetSize, length);
+                partitions.put("partition" + number++, createContext(start, end));
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to split " + resource, e);
+        }
+
+        if (partitions.isEmpty()) {
+            partitions.put("partition0", createContext(0, 0));
+        }
+        return partitions;
+    }
+
+    /**
+     * offset 부터 '\n' 을 찾아서 그 다음 위치를 반환한다.
+     */
+    private long alignToNextLine(final FileChannel channel, final long offset, final long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = offset;
+        while (position < length) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return length;
+    }
+
+    private ExecutionContext createContext(final long startOffset, final long endOffset) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(START_OFFSET, startOffset);
+        context.putLong(END_OFFSET, endOffset);
+        return context;
+    }
+}
@@ -0,0 +1,79 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * MySQL Connector/J 는 fetchSize 를 설정하지 않으면 결과 전체를 client 메모리에 받은 다음에 첫번째 row 를 돌려준다.
+ * -> JdbcCursorItemReader 를 사용해도 사실상 전체를 한번에 읽는 것과 같다.
+ *
+ * 실제로 row 단위로 받으려면 둘 중 하나가 필요하다.
+ * - fetchSize = Integer.MIN_VALUE : row 를 하나씩 streaming 으로 받는다. 다 읽을 때까지 그 connection 으로 다른 query 를 할 수 없다.
+ * - url 에 useCursorFetch=true + fetchSize > 0 : server side cursor 로 fetchSize 개씩 받는다.
+ *
+ * mysql profile 로 실행하면 시작할 때 driver 설정을 확인해서, 전체를 buffering 하게 되는 설정이면 경고를 남긴다.
+ * 다른 bean 이 참조하지 않기 때문에 batch.launch.lazy=true 에서도 시작할 때 만들어지도록 @Lazy(false) 로 둔다.
+ */
+@Slf4j
+@Component
+@Lazy(false)
+@Profile("mysql")
+public class MySqlStreamingCheck implements InitializingBean {
+
+    private final DataSource dataSource;
+
+    public MySqlStreamingCheck(final DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * url 에 useCursorFetch=true 가 있으면 cursorFetchSize 개씩, 없으면 row 단위 streaming 으로 읽는 fetch size 를 반환한다.
+     */
+    public static int streamingFetchSize(final String jdbcUrl, final int cursorFetchSize) {
+        return isEnabled(jdbcUrl, "useCursorFetch") ? cursorFetchSize : Integer.MIN_VALUE;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String url;
+        try (Connection connection = dataSource.getConnection()) {
+            url = connection.getMetaData().getURL();
+        } catch (SQLException e) {
+            log.warn("MySQL streaming 설정을 확인하지 못했다.", e);
+            return;
+        }
+
+        if (isEnabled(url, "useCursorFetch")) {
+            if (isDisabled(url, "useServerPrepStmts")) {
+                log.warn("useCursorFetch=true 는 server side prepared statement 가 필요한데 useServerPrepStmts=false 이다. " +
+                        "cursor 를 사용하지 못하고 결과 전체를 buffering 한다. url: {}", url);
+                return;
+            }
+            log.info("MySQL server side cursor 로 fetchSize 개씩 읽는다. url: {}", url);
+            return;
+        }
+
+        if (url.toLowerCase(Locale.ROOT).contains("defaultfetchsize=")) {
+            log.warn("useCursorFetch 없이 defaultFetchSize 를 설정하면 무시되고 결과 전체를 buffering 한다. " +
+                    "jdbcCursorStep 은 Integer.MIN_VALUE 로 row 단위 streaming 을 사용한다. url: {}", url);
+            return;
+        }
+        log.info("useCursorFetch 가 없어서 jdbcCursorStep 은 row 단위 streaming(fetchSize=Integer.MIN_VALUE) 으로 읽는다. url: {}", url);
+    }
+
+    private static boolean isEnabled(final String url, final String property) {
+        return url != null && url.toLowerCase(Locale.ROOT).contains(property.toLowerCase(Locale.ROOT) + "=true");
+    }
+
+    private static boolean isDisabled(final String url, final String property) {
+        return url != null && url.toLowerCase(Locale.ROOT).contains(property.toLowerCase(Locale.ROOT) + "=false");
+    }
+}
@@ -7,6 +7,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 /**
  * ListItemReader 를 custom 하게 만든 예제에서 사용하기 위해 Test 용도로 만들었다.
@@ -16,7 +17,20 @@ import javax.persistence.Id;
 @NoArgsConstructor
 public class Person {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * IDENTITY 는 insert 를 해야 id 를 알 수 있어서 hibernate 가 insert batch 를 사용하지 못한다.
+     * sequence 로 id 를 50 개씩 미리 할당 받아서 (pooled) insert 를 batch 로 묶을 수 있게 한다.
+     * sequence 가 없는 MySQL 에서는 hibernate 가 person_seq 테이블로 대신 처리한다.
+     *
+     * IDENTITY 를 쓰던 기존 DB 에서 upgrade 하면 새로 만들어진 person_seq 가 1 부터 시작해서 기존 id 와 겹친다.
+     * -> mysql profile 은 시작할 때 person-seq-mysql.sql 이 person_seq 를 max(id) 뒤로 올린다.
+     * -> 다른 DB 는 PersonIdSequence.restartAfterMaxId 를 한번 실행한다.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_seq", allocationSize = ID_ALLOCATION_SIZE)
     private int id;
     private String name;
     private String age;
@@ -0,0 +1,144 @@
+package spring.batch.part3;
+
+import org.springframework.util.Assert;
+
+/**
+ * Person 여러 row 를 column 별 배열로 들고 있는 chunk buffer. (struct-of-arrays)
+ *
+ * List<Person> 은 row 마다 Person 객체와 String 3 개가 heap 에 남는다.
+ * - id : int[]
+ * - age : varchar 지만 읽을 때 한번만 int 로 parse 해서 int[] 에 저장한다.
+ *   숫자가 아니거나 int 로 바꾸면 원래 문자열로 돌아오지 않는 값 (ex. "032", " 32") 은 드물어서
+ *   그때만 rawAges 를 만들어서 원래 문자열을 보관한다. -> ageText 로 항상 원래 문자열을 얻는다.
+ * - address : AddressDictionary 의 code 로 short[] 에 저장한다.
+ * - name : row 마다 다른 값이라서 String[] 그대로 둔다.
+ *
+ * reader 가 capacity 만큼 채워서 한번에 넘겨주고, writer 는 index 로 column 을 읽는다. -> row 마다 Person 을 만들지 않는다.
+ */
+public class PersonColumns {
+
+    public static final int NO_AGE = Integer.MIN_VALUE;
+
+    private final AddressDictionary dictionary;
+    private final int[] ids;
+    private final String[] names;
+    private final int[] ages;
+    private final short[] addresses;
+    private String[] rawAges;
+    private int size;
+
+    public PersonColumns(final int capacity, final AddressDictionary dictionary) {
+        Assert.isTrue(capacity > 0, "capacity 는 0 보다 커야 한다.");
+        Assert.notNull(dictionary, "dictionary 는 필수값 이다.");
+        this.dictionary = dictionary;
+        this.ids = new int[capacity];
+        this.names = new String[capacity];
+        this.ages = new int[capacity];
+        this.addresses = new short[capacity];
+    }
+
+    /**
+     * @return 가득 차서 더 넣을 수 없으면 false
+     */
+    public boolean add(final int id, final String name, final String age, final String address) {
+        if (isFull()) {
+            return false;
+        }
+        ids[size] = id;
+        names[size] = name;
+        ages[size] = parseAge(age);
+        if (ages[size] == NO_AGE && age != null) {
+            if (rawAges == null) {
+                rawAges = new String[ids.length];
+            }
+            rawAges[size] = age;
+        }
+        addresses[size] = dictionary.encode(address);
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    public int id(final int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public String name(final int index) {
+        checkIndex(index);
+        return names[index];
+    }
+
+    /**
+     * @return parse 된 나이. 숫자가 아니거나, 0 으로 시작하거나, null 이면 NO_AGE
+     */
+    public int age(final int index) {
+        checkIndex(index);
+        return ages[index];
+    }
+
+    /**
+     * age 로 parse 하지 않은 원래 문자열. parse 되었거나 null 이었으면 null
+     */
+    public String rawAge(final int index) {
+        checkIndex(index);
+        return rawAges == null ? null : rawAges[index];
+    }
+
+    /**
+     * DB 에서 읽은 age 문자열 그대로. (null 이었으면 null)
+     */
+    public String ageText(final int index) {
+        int age = age(index);
+        return age == NO_AGE ? rawAge(index) : String.valueOf(age);
+    }
+
+    public short addressCode(final int index) {
+        checkIndex(index);
+        return addresses[index];
+    }
+
+    public String address(final int index) {
+        return dictionary.decode(addressCode(index));
+    }
+
+    public Person toPerson(final int index) {
+        return new Person(id(index), name(index), ageText(index), address(index));
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    /**
+     * Integer.parseInt 와 달리 숫자가 아니어도 예외(= stack trace 할당) 를 만들지 않는다.
+     * String.valueOf 로 원래 문자열이 되는 값만 parse 한다. ("032" 는 32 로 바꾸지 않는다.)
+     */
+    static int parseAge(final String age) {
+        if (age == null || age.isEmpty() || age.length() > 9 || (age.length() > 1 && age.charAt(0) == '0')) {
+            return NO_AGE;
+        }
+        int value = 0;
+        for (int i = 0; i < age.length(); i++) {
+            char c = age.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_AGE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,130 @@
+package spring.batch.part3;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * JdbcCursorItemReader 처럼 cursor 로 person 을 읽지만, read() 1 번에 blockSize 개의 row 를 PersonColumns 하나로 넘겨준다.
+ * sql 의 column 순서는 id, name, age, address 이어야 한다.
+ *
+ * item 하나가 row blockSize 개 이기 때문에 step 은 chunk(1) 로 사용한다. -> commit interval 은 blockSize 개의 row
+ * 읽은 row 수를 ExecutionContext 에 저장하고, 재시작하면 그만큼 건너뛴다. (정렬된 sql 이어야 한다.)
+ * read 마다 PersonColumns 를 새로 만든다. chunk 의 item 은 write 가 끝나기 전까지 (retry / skip 포함) step 이 들고 있어서 재사용하지 않는다.
+ * thread-safe 하지 않다.
+ */
+public class PersonColumnsItemReader extends AbstractItemStreamItemReader<PersonColumns> {
+
+    private static final String READ_COUNT = "read.count";
+
+    private final AddressDictionary dictionary = new AddressDictionary();
+
+    private DataSource dataSource;
+    private String sql;
+    private int blockSize = 1000;
+    private int fetchSize = -1;
+    private boolean saveState = true;
+
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private long readCount;
+
+    public PersonColumnsItemReader() {
+        setName("personColumnsItemReader");
+    }
+
+    public void setDataSource(final DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void setSql(final String sql) {
+        this.sql = sql;
+    }
+
+    public void setBlockSize(final int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * -1 이면 driver 기본값을 사용한다. (MySQL 은 MySqlStreamingCheck 참고)
+     */
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public void setSaveState(final boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    public AddressDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+        Assert.notNull(dataSource, "dataSource 는 필수값 이다.");
+        Assert.hasText(sql, "sql 은 필수값 이다.");
+        Assert.isTrue(blockSize > 0, "blockSize 는 0 보다 커야 한다.");
+
+        readCount = 0;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize != -1) {
+                statement.setFetchSize(fetchSize);
+            }
+            resultSet = statement.executeQuery();
+
+            String key = getExecutionContextKey(READ_COUNT);
+            long skip = executionContext.containsKey(key) ? ((Number) executionContext.get(key)).longValue() : 0;
+            while (readCount < skip && resultSet.next()) {
+                readCount++;
+            }
+        } catch (SQLException e) {
+            close();
+            throw new ItemStreamException("Failed to open cursor: " + sql, e);
+        }
+    }
+
+    @Override
+    public PersonColumns read() throws SQLException {
+        if (resultSet == null) {
+            return null;
+        }
+        PersonColumns columns = new PersonColumns(blockSize, dictionary);
+        while (!columns.isFull() && resultSet.next()) {
+            columns.add(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4));
+        }
+        readCount += columns.size();
+        return columns.isEmpty() ? null : columns;
+    }
+
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (saveState) {
+            executionContext.putLong(getExecutionContextKey(READ_COUNT), readCount);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        super.close();
+        JdbcUtils.closeResultSet(resultSet);
+        JdbcUtils.closeStatement(statement);
+        JdbcUtils.closeConnection(connection);
+        resultSet = null;
+        statement = null;
+        connection = null;
+    }
+}
@@ -0,0 +1,148 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.Assert;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * person 테이블을 증분(delta) 으로 읽기 위한 high-water mark 를 관리한다.
+ *
+ * - step 이 COMPLETED 로 끝나면 지금까지 읽은 가장 큰 id 를 job ExecutionContext 에 "{stepName}.lastId" 로 저장한다.
+ *   (SharedConfiguration 의 jobKey 와 같은 방식)
+ * - step 이 시작할 때 이전 JobInstance 의 job ExecutionContext 에서 그 값을 찾아서 step ExecutionContext 의 fromId 로 넣는다.
+ *   reader 는 #{stepExecutionContext[fromId]} 로 받아서 id > fromId 인 row 만 읽는다.
+ * - jobParameters 의 fullScan=true 이면 fromId 를 0 으로 해서 전체를 다시 읽는다.
+ *
+ * split 으로 여러 step 이 같은 job ExecutionContext 를 사용하기 때문에 key 에 step 이름을 붙인다.
+ * 재시작하면 step ExecutionContext 에 저장된 fromId 를 그대로 사용한다. -> 재시작 전과 같은 범위를 이어서 읽는다.
+ *
+ * step 에 StepExecutionListener, ItemWriteListener 로 등록해야 한다.
+ */
+@Slf4j
+public class PersonHighWaterMarkListener implements StepExecutionListener, ItemWriteListener<Person> {
+
+    public static final String FROM_ID = "fromId";
+    public static final String LAST_ID = "lastId";
+    public static final String FULL_SCAN = "fullScan";
+
+    private static final int MAX_LOOKUP_INSTANCES = 100;
+
+    private final JobExplorer jobExplorer;
+
+    public PersonHighWaterMarkListener(final JobExplorer jobExplorer) {
+        this.jobExplorer = jobExplorer;
+    }
+
+    public static String jobKey(final String stepName) {
+        return stepName + "." + LAST_ID;
+    }
+
+    @Override
+    public void beforeStep(final StepExecution stepExecution) {
+        ExecutionContext stepContext = stepExecution.getExecutionContext();
+        if (stepContext.containsKey(FROM_ID)) {
+            log.info("[{}] 재시작 -> id > {} 부터 이어서 읽는다.", stepExecution.getStepName(), longValue(stepContext, FROM_ID));
+            return;
+        }
+
+        long fromId = 0;
+        if (Boolean.parseBoolean(stepExecution.getJobParameters().getString(FULL_SCAN))) {
+            log.info("[{}] fullScan -> 전체를 읽는다.", stepExecution.getStepName());
+        } else {
+            Long lastId = findLastId(stepExecution);
+            if (lastId != null) {
+                fromId = lastId;
+                log.info("[{}] high-water mark {} -> id > {} 인 row 만 읽는다.", stepExecution.getStepName(), lastId, lastId);
+            }
+        }
+        stepContext.putLong(FROM_ID, fromId);
+    }
+
+    @Override
+    public ExitStatus afterStep(final StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            return null;
+        }
+        ExecutionContext stepContext = stepExecution.getExecutionContext();
+        long lastId = Math.max(longValue(stepContext, FROM_ID), longValue(stepContext, LAST_ID));
+        stepExecution.getJobExecution().getExecutionContext().putLong(jobKey(stepExecution.getStepName()), lastId);
+        return null;
+    }
+
+    @Override
+    public void beforeWrite(final List<? extends Person> items) {
+    }
+
+    /**
+     * chunk 의 transaction 안에서 step ExecutionContext 를 갱신한다. -> commit 된 chunk 까지만 lastId 에 반영된다.
+     * listener 는 singleton step 에 붙어서 같은 job 이 동시에 실행되면 공유되기 때문에,
+     * StepExecution 을 field 에 두지 않고 지금 thread 의 StepSynchronizationManager 에서 꺼낸다.
+     */
+    @Override
+    public void afterWrite(final List<? extends Person> items) {
+        StepContext context = StepSynchronizationManager.getContext();
+        Assert.state(context != null, "afterWrite 는 step 안에서 호출되어야 한다.");
+        ExecutionContext stepContext = context.getStepExecution().getExecutionContext();
+        long lastId = longValue(stepContext, LAST_ID);
+        for (Person item : items) {
+            lastId = Math.max(lastId, item.getId());
+        }
+        stepContext.putLong(LAST_ID, lastId);
+    }
+
+    @Override
+    public void onWriteError(final Exception exception, final List<? extends Person> items) {
+    }
+
+    /**
+     * 최근 JobInstance 부터 거슬러 올라가면서 같은 step 의 high-water mark 가 저장된 job ExecutionContext 를 찾는다.
+     * 실패하고 재시작하지 않은 JobInstance 에는 값이 없어서 그 이전 값을 사용한다.
+     */
+    private Long findLastId(final StepExecution stepExecution) {
+        JobInstance current = stepExecution.getJobExecution().getJobInstance();
+        String key = jobKey(stepExecution.getStepName());
+        for (int start = 0; start < MAX_LOOKUP_INSTANCES; start += 10) {
+            List<JobInstance> instances = jobExplorer.getJobInstances(current.getJobName(), start, 10);
+            for (JobInstance instance : instances) {
+                if (instance.getId().equals(current.getId())) {
+                    continue;
+                }
+                Long lastId = jobExplorer.getJobExecutions(instance).stream()
+                        .sorted(Comparator.comparing(JobExecution::getId).reversed())
+                        .map(JobExecution::getExecutionContext)
+                        .filter(context -> context.containsKey(key))
+                        .map(context -> longValue(context, key))
+                        .findFirst()
+                        .orElse(null);
+                if (lastId != null) {
+                    return lastId;
+                }
+            }
+            if (instances.size() < 10) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * JSON 으로 저장된 context 를 다시 읽으면 작은 Long 값이 Integer 로 돌아올 수 있어서 Number 로 꺼낸다.
+     */
+    private static long longValue(final ExecutionContext context, final String key) {
+        Object value = context.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,59 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * person 테이블의 min(id) ~ max(id) 를 gridSize 개의 구간으로 나눈다.
+ * 각 구간은 partition 의 ExecutionContext 에 minId, maxId 로 들어가고
+ * worker step 의 reader 는 #{stepExecutionContext[minId]} 로 자기 구간만 읽는다.
+ */
+@Slf4j
+public class PersonIdRangePartitioner implements Partitioner {
+
+    public static final String MIN_ID = "minId";
+    public static final String MAX_ID = "maxId";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PersonIdRangePartitioner(final DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(final int gridSize) {
+        Map<String, Object> range = jdbcTemplate.queryForMap("select min(id) as min_id, max(id) as max_id from person");
+        Map<String, ExecutionContext> partitions = new HashMap<>(gridSize);
+
+        if (range.get("min_id") == null) { // 테이블이 비어있으면 아무것도 읽지 않는 partition 하나만 만든다.
+            partitions.put("partition0", createContext(1, 0));
+            return partitions;
+        }
+
+        long min = ((Number) range.get("min_id")).longValue();
+        long max = ((Number) range.get("max_id")).longValue();
+        long targetSize = (max - min) / gridSize + 1;
+
+        int number = 0;
+        for (long start = min; start <= max; start += targetSize) {
+            long end = Math.min(start + targetSize - 1, max);
+            partitions.put("partition" + number++, createContext(start, end));
+        }
+
+        log.info("person id {} ~ {} 를 {} 개의 partition 으로 나눴다.", min, max, partitions.size());
+        return partitions;
+    }
+
+    private ExecutionContext createContext(final long minId, final long maxId) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(MIN_ID, minId);
+        context.putLong(MAX_ID, maxId);
+        return context;
+    }
+}
@@ -0,0 +1,43 @@
+package spring.batch.part3;
+
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+
+/**
+ * Person 의 id 를 할당하는 person_seq 를 person 테이블의 max(id) 뒤로 맞춘다.
+ *
+ * hibernate 의 pooled optimizer 는 sequence 에서 v 를 받으면 v - allocationSize + 1 ~ v 를 id 로 사용한다.
+ * -> max(id) + allocationSize 로 맞추면 다음 persist 는 max(id) + 1 부터 할당 받는다.
+ * - H2 : alter sequence person_seq restart with ?
+ * - MySQL : sequence 가 없어서 hibernate 가 만든 person_seq 테이블 (next_val) 을 수정한다.
+ *
+ * id 를 직접 지정해서 데이터를 넣은 뒤 (PersonDataGenerator, JDBC writer) JPA 로 persist 하기 전에 호출한다.
+ */
+public final class PersonIdSequence {
+
+    private PersonIdSequence() {
+    }
+
+    public static void restartAfterMaxId(final DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from person", Long.class);
+        long next = (maxId == null ? 0 : maxId) + Person.ID_ALLOCATION_SIZE;
+
+        if (databaseType(dataSource) == DatabaseType.MYSQL) {
+            jdbcTemplate.update("update person_seq set next_val = ?", next);
+        } else {
+            jdbcTemplate.execute("alter sequence person_seq restart with " + next);
+        }
+    }
+
+    private static DatabaseType databaseType(final DataSource dataSource) {
+        try {
+            return DatabaseType.fromMetaData(dataSource);
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("DB 종류를 확인할 수 없다.", e);
+        }
+    }
+}
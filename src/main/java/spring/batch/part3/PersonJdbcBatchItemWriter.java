@@ -0,0 +1,132 @@
+package spring.batch.part3;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Person 을 multi-row insert / upsert 로 저장하는 writer.
+ *
+ * JdbcBatchItemWriter 는 row 하나당 insert 문 하나를 batch 로 보낸다.
+ * 이 writer 는 rowsPerStatement 개의 row 를 하나의 문장으로 묶는다.
+ * -> insert into person (id, name, age, address) values (?, ?, ?, ?), (?, ?, ?, ?), ...
+ * id 는 item 에 들어있는 값을 그대로 사용한다.
+ *
+ * writeColumns 로 PersonColumns 를 Person 으로 바꾸지 않고 column 배열에서 바로 bind 할 수도 있다.
+ *
+ * UPSERT 문법은 DB 마다 달라서 DataSource 에서 DatabaseType 을 찾아서 사용한다.
+ * H2 를 MySQL mode 로 사용하는 경우처럼 실제 DB 와 문법이 다르면 setDatabaseType 으로 직접 지정한다.
+ */
+public class PersonJdbcBatchItemWriter implements ItemWriter<Person>, InitializingBean {
+
+    public enum Mode {
+        INSERT, UPSERT
+    }
+
+    private static final String COLUMNS = "person (id, name, age, address)";
+    private static final String ROW = "(?, ?, ?, ?)";
+
+    private final Map<Integer, String> sqlCache = new ConcurrentHashMap<>();
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private Mode mode = Mode.INSERT;
+    private DatabaseType databaseType;
+    private int rowsPerStatement = 500;
+
+    public void setDataSource(final DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void setMode(final Mode mode) {
+        this.mode = mode;
+    }
+
+    public void setDatabaseType(final DatabaseType databaseType) {
+        this.databaseType = databaseType;
+    }
+
+    /**
+     * 한 문장에 넣을 최대 row 수. bind parameter 는 row 당 4 개이다.
+     */
+    public void setRowsPerStatement(final int rowsPerStatement) {
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws MetaDataAccessException {
+        Assert.notNull(dataSource, "dataSource 는 필수값 이다.");
+        Assert.isTrue(rowsPerStatement > 0, "rowsPerStatement 는 0 보다 커야 한다.");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        if (databaseType == null) {
+            databaseType = DatabaseType.fromMetaData(dataSource);
+        }
+        createSql(1); // 지원하지 않는 DB 면 여기서 실패한다.
+    }
+
+    @Override
+    public void write(final List<? extends Person> items) {
+        for (int from = 0; from < items.size(); from += rowsPerStatement) {
+            List<? extends Person> rows = items.subList(from, Math.min(from + rowsPerStatement, items.size()));
+            jdbcTemplate.update(sqlCache.computeIfAbsent(rows.size(), this::createSql), ps -> {
+                int index = 1;
+                for (Person person : rows) {
+                    ps.setInt(index++, person.getId());
+                    ps.setString(index++, person.getName());
+                    ps.setString(index++, person.getAge());
+                    ps.setString(index++, person.getAddress());
+                }
+            });
+        }
+    }
+
+    /**
+     * age 는 varchar column 이라서 읽은 문자열 그대로 bind 한다. ("032" 같은 값이 "32" 로 바뀌지 않게)
+     */
+    public void writeColumns(final PersonColumns columns) {
+        for (int from = 0; from < columns.size(); from += rowsPerStatement) {
+            int start = from;
+            int rows = Math.min(rowsPerStatement, columns.size() - from);
+            jdbcTemplate.update(sqlCache.computeIfAbsent(rows, this::createSql), ps -> {
+                int index = 1;
+                for (int i = start; i < start + rows; i++) {
+                    ps.setInt(index++, columns.id(i));
+                    ps.setString(index++, columns.name(i));
+                    ps.setString(index++, columns.ageText(i));
+                    ps.setString(index++, columns.address(i));
+                }
+            });
+        }
+    }
+
+    private String createSql(final int rows) {
+        StringBuilder values = new StringBuilder(rows * (ROW.length() + 2));
+        for (int i = 0; i < rows; i++) {
+            values.append(i == 0 ? "" : ", ").append(ROW);
+        }
+
+        if (mode == Mode.INSERT) {
+            return "insert into " + COLUMNS + " values " + values;
+        }
+        switch (databaseType) {
+            case MYSQL:
+                return "insert into " + COLUMNS + " values " + values
+                        + " on duplicate key update name = values(name), age = values(age), address = values(address)";
+            case H2:
+                return "merge into " + COLUMNS + " key (id) values " + values;
+            case POSTGRES:
+                return "insert into " + COLUMNS + " values " + values
+                        + " on conflict (id) do update set name = excluded.name, age = excluded.age, address = excluded.address";
+            default:
+                throw new IllegalStateException("UPSERT 를 지원하지 않는 DB 이다: " + databaseType);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * read -> process -> write 를 각각 다른 thread 에서 동시에 실행하기 위한 reader.
+ *
+ * 기본 chunk step 은 한 thread 에서 read, process, write 를 순서대로 하기 때문에 writer 가 commit 하는 동안 reader 는 놀고 있다.
+ * 이 reader 는 open 될 때 두개의 thread 를 띄운다.
+ * - reader thread : delegate 에서 item 을 읽어서 read queue 에 넣는다.
+ * - processor thread : read queue 에서 꺼내서 processor 를 실행하고 process queue 에 넣는다.
+ * step thread 는 process queue 에서 꺼내서 writer 로 넘긴다. (step 에는 processor 를 따로 설정하지 않는다.)
+ * 두 queue 모두 크기가 정해져 있어서 writer 가 느리면 앞 단계도 queue 가 찰 때까지만 읽고 기다린다.
+ *
+ * chunk 와 transaction 은 기존과 같이 step thread 에서 writer 기준으로 나뉜다.
+ * 대신 reader / processor 는 chunk transaction 밖에서 실행되기 때문에 transaction 에 참여하지 않는 reader 에만 사용해야 하고,
+ * 에러는 writer 에서 read() 할 때 그대로 던져지기 때문에 skip / retry 는 지원하지 않는다.
+ *
+ * 재시작 위치는 delegate 의 상태 대신 "writer 로 넘긴 item 까지 delegate 에서 몇개를 읽었는지" 로 저장한다.
+ * -> 미리 읽어둔 item 이 있어도 commit 된 곳부터 다시 읽는다.
+ *
+ * processor 는 step 의 chunk processor 밖에서 실행되어서
+ * - step 의 readCount 는 processor 를 통과한 item 수만, filterCount 는 0 으로 남는다.
+ *   만든 step 을 applyTo 로 넘기면 chunk 마다 filter 된 item 수를 StepContribution 의 readCount, filterCount 에 더한다.
+ *   -> readCount = writeCount + filterCount 가 processor 를 step 에 설정했을 때와 같아진다.
+ * - ItemProcessListener 는 호출되지 않는다. (step 에 등록해도 processor 가 없어서 실행되지 않는다.)
+ * @param <I>
+ * @param <O>
+ */
+@Slf4j
+public class PipelinedItemReader<I, O> extends AbstractItemStreamItemReader<O> {
+
+    private static final String READ_COUNT = "read.count";
+    private static final long CLOSE_WAIT_MILLIS = 10_000;
+
+    private final ItemReader<? extends I> delegate;
+    private final ItemProcessor<? super I, ? extends O> processor;
+    private final int queueCapacity;
+
+    private BlockingQueue<Envelope<I>> readQueue;
+    private BlockingQueue<Envelope<O>> processQueue;
+    private Thread readerThread;
+    private Thread processorThread;
+    private volatile boolean running;
+
+    private long consumed;
+    private boolean exhausted;
+    private int filtered;
+
+    public PipelinedItemReader(final ItemReader<? extends I> delegate,
+                               final ItemProcessor<? super I, ? extends O> processor,
+                               final int queueCapacity) {
+        Assert.notNull(delegate, "delegate 는 필수값 이다.");
+        Assert.notNull(processor, "processor 는 필수값 이다.");
+        Assert.isTrue(queueCapacity > 0, "queueCapacity 는 0 보다 커야 한다.");
+        this.delegate = delegate;
+        this.processor = processor;
+        this.queueCapacity = queueCapacity;
+        setName("pipelinedItemReader");
+    }
+
+    /**
+     * step 의 tasklet (ChunkOrientedTasklet) 을 감싸서 chunk 에서 filter 된 item 수를 StepContribution 에 더한다.
+     * tasklet 은 chunk transaction 안에서 실행되고, StepContribution 은 그 뒤 commit 전에 StepExecution 에 더해진다.
+     */
+    public TaskletStep applyTo(final TaskletStep step) {
+        Tasklet tasklet = step.getTasklet();
+        Assert.notNull(tasklet, "step 에 tasklet 이 없다.");
+        step.setTasklet((contribution, chunkContext) -> {
+            filtered = 0;
+            RepeatStatus status = tasklet.execute(contribution, chunkContext);
+            contribution.incrementFilterCount(filtered);
+            for (int i = 0; i < filtered; i++) {
+                contribution.incrementReadCount(); // step 은 writer 로 넘긴 item 만 read 로 센다.
+            }
+            return status;
+        });
+        return step;
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+        String key = getExecutionContextKey(READ_COUNT);
+        long skip = executionContext.containsKey(key) ? executionContext.getLong(key) : 0;
+
+        if (delegate instanceof ItemStream) {
+            // delegate 가 저장한 위치는 미리 읽은 만큼 앞서 있을 수 있어서 사용하지 않는다.
+            ((ItemStream) delegate).open(new ExecutionContext());
+        }
+
+        readQueue = new ArrayBlockingQueue<>(queueCapacity);
+        processQueue = new ArrayBlockingQueue<>(queueCapacity);
+        consumed = skip;
+        exhausted = false;
+        running = true;
+
+        readerThread = new Thread(() -> read(skip), getName() + "-reader");
+        processorThread = new Thread(this::process, getName() + "-processor");
+        readerThread.setDaemon(true);
+        processorThread.setDaemon(true);
+        readerThread.start();
+        processorThread.start();
+    }
+
+    @Override
+    public O read() throws Exception {
+        if (exhausted) {
+            return null;
+        }
+        Envelope<O> envelope = processQueue.take();
+        if (envelope.error != null) {
+            exhausted = true;
+            throw envelope.error;
+        }
+        // consumed 와 sequence 사이에 delegate 에서 읽었지만 processor 가 filter 한 item 이 있다.
+        filtered += (int) (envelope.sequence - consumed) - (envelope.last ? 0 : 1);
+        consumed = envelope.sequence;
+        if (envelope.last) {
+            exhausted = true;
+            return null;
+        }
+        return envelope.item;
+    }
+
+    /**
+     * TaskletStep 은 chunk transaction 안에서 write 가 끝난 뒤, commit 전에 update 를 호출한다.
+     * consumed 는 이번 chunk 에서 writer 로 넘긴 item 까지의 delegate read 수이고, 저장한 값은 chunk 와 같이 commit / rollback 된다.
+     */
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        executionContext.putLong(getExecutionContextKey(READ_COUNT), consumed);
+    }
+
+    /**
+     * reader thread 가 delegate.read() 를 실행하는 중에 delegate 를 닫으면 (ex. JDBC cursor) 사용 중인 자원이 닫히기 때문에
+     * 두 thread 가 끝날 때까지 CLOSE_WAIT_MILLIS 동안 기다린 뒤에 delegate 를 닫는다.
+     */
+    @Override
+    public void close() throws ItemStreamException {
+        super.close();
+        running = false;
+        if (readerThread != null) {
+            readerThread.interrupt();
+            processorThread.interrupt();
+            join(readerThread);
+            join(processorThread);
+            readerThread = null;
+            processorThread = null;
+        }
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).close();
+        }
+    }
+
+    private void join(final Thread thread) {
+        try {
+            thread.join(CLOSE_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("{} 가 {}ms 안에 끝나지 않았다.", thread.getName(), CLOSE_WAIT_MILLIS);
+        }
+    }
+
+    private void read(final long skip) {
+        long sequence = 0;
+        try {
+            for (; sequence < skip; sequence++) {
+                if (delegate.read() == null) {
+                    break;
+                }
+            }
+            I item;
+            while (running && (item = delegate.read()) != null) {
+                readQueue.put(Envelope.of(item, ++sequence));
+            }
+            readQueue.put(Envelope.last(sequence));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            offer(readQueue, Envelope.error(e));
+        }
+    }
+
+    private void process() {
+        try {
+            while (running) {
+                Envelope<I> envelope = readQueue.take();
+                if (envelope.error != null || envelope.last) {
+                    processQueue.put(Envelope.forward(envelope));
+                    return;
+                }
+                O result = processor.process(envelope.item);
+                if (result != null) { // null 이면 filter 된 item 이라 writer 로 넘기지 않는다.
+                    processQueue.put(Envelope.of(result, envelope.sequence));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            offer(processQueue, Envelope.error(e));
+        }
+    }
+
+    private <T> void offer(final BlockingQueue<Envelope<T>> queue, final Envelope<T> envelope) {
+        try {
+            queue.put(envelope);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("pipeline 이 종료되어 에러를 전달하지 못했다.", envelope.error);
+        }
+    }
+
+    private static class Envelope<T> {
+
+        private final T item;
+        private final long sequence;
+        private final boolean last;
+        private final Exception error;
+
+        private Envelope(final T item, final long sequence, final boolean last, final Exception error) {
+            this.item = item;
+            this.sequence = sequence;
+            this.last = last;
+            this.error = error;
+        }
+
+        static <T> Envelope<T> of(final T item, final long sequence) {
+            return new Envelope<>(item, sequence, false, null);
+        }
+
+        static <T> Envelope<T> last(final long sequence) {
+            return new Envelope<>(null, sequence, true, null);
+        }
+
+        static <T> Envelope<T> error(final Exception error) {
+            return new Envelope<>(null, 0, false, error);
+        }
+
+        static <T> Envelope<T> forward(final Envelope<?> envelope) {
+            return new Envelope<>(null, envelope.sequence, envelope.last, envelope.error);
+        }
+    }
+}
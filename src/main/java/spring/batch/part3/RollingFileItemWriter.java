@@ -0,0 +1,362 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.batch.item.support.AbstractItemStreamItemWriter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * item 을 한 줄씩 파일로 내보내는 writer. FlatFileItemWriter 와 달리 여러 thread 가 동시에 write 해도 된다.
+ *
+ * - chunk 의 item 을 줄로 만들고 압축하는 일은 write 를 호출한 thread 에서 lock 없이 한다.
+ *   파일에 붙이는 것만 lock 을 잡는다. -> item 마다가 아니라 chunk 마다 한번
+ * - 파일에는 크기가 큰 direct ByteBuffer 를 거쳐서 FileChannel 로 쓴다.
+ * - GZIP 이면 chunk 하나를 gzip member 하나로 압축해서 붙인다. (block 압축)
+ *   여러 member 를 이어 붙인 파일도 gzip 파일이라서 gunzip, GZIPInputStream 으로 그대로 읽을 수 있고,
+ *   chunk 경계가 member 경계라서 재시작할 때 잘라내도 파일이 깨지지 않는다.
+ * - maxRowsPerFile / maxBytesPerFile 을 넘으면 다음 파일({prefix}-0002.csv ...) 로 넘어간다. chunk 단위로 넘어가기 때문에
+ *   chunk 하나가 한도보다 크면 그 파일은 한도를 넘을 수 있다.
+ *
+ * transaction 안에서 write 하면 chunk 의 내용은 update() 나 commit 직전에 파일에 붙고, rollback 되면 버려진다.
+ * update() 가 파일 번호, byte offset 을 ExecutionContext 에 저장하고, 재시작하면 그 파일을 offset 까지 잘라내고
+ * 그 뒤에 만들어진 파일은 지운다. -> commit 된 chunk 까지만 남는다.
+ * multi-thread step 은 spring batch 에서 재시작을 지원하지 않기 때문에 saveState 를 false 로 사용한다.
+ */
+@Slf4j
+public class RollingFileItemWriter<T> extends AbstractItemStreamItemWriter<T> {
+
+    public enum Compression {
+        NONE(""), GZIP(".gz");
+
+        private final String extension;
+
+        Compression(final String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private static final String FILE_INDEX = "file.index";
+    private static final String BYTE_OFFSET = "byte.offset";
+    private static final String ROW_COUNT = "row.count";
+
+    private final Object pendingKey = new Object();
+    private final Object lock = new Object();
+
+    private File directory;
+    private String filePrefix;
+    private String header;
+    private LineAggregator<T> lineAggregator;
+    private Charset encoding = StandardCharsets.UTF_8;
+    private Compression compression = Compression.NONE;
+    private long maxRowsPerFile = Long.MAX_VALUE;
+    private long maxBytesPerFile = Long.MAX_VALUE;
+    private int bufferSize = 1024 * 1024;
+    private boolean forceSync;
+    private boolean saveState = true;
+
+    private ByteBuffer buffer;
+    private FileChannel channel;
+    private int fileIndex;
+    private long fileBytes;
+    private long fileRows;
+
+    public RollingFileItemWriter() {
+        setName("rollingFileItemWriter");
+    }
+
+    public void setDirectory(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 파일 이름은 {filePrefix}-0001.csv(.gz) 이다.
+     */
+    public void setFilePrefix(final String filePrefix) {
+        this.filePrefix = filePrefix;
+    }
+
+    /**
+     * 파일마다 첫 줄에 쓴다.
+     */
+    public void setHeader(final String header) {
+        this.header = header;
+    }
+
+    public void setLineAggregator(final LineAggregator<T> lineAggregator) {
+        this.lineAggregator = lineAggregator;
+    }
+
+    public void setEncoding(final Charset encoding) {
+        this.encoding = encoding;
+    }
+
+    public void setCompression(final Compression compression) {
+        this.compression = compression;
+    }
+
+    public void setMaxRowsPerFile(final long maxRowsPerFile) {
+        this.maxRowsPerFile = maxRowsPerFile;
+    }
+
+    /**
+     * 압축한 뒤의 크기
+     */
+    public void setMaxBytesPerFile(final long maxBytesPerFile) {
+        this.maxBytesPerFile = maxBytesPerFile;
+    }
+
+    public void setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * update() 에서 FileChannel.force 까지 한다. 장애가 나도 commit 된 chunk 가 디스크에 남아야 하면 켠다.
+     */
+    public void setForceSync(final boolean forceSync) {
+        this.forceSync = forceSync;
+    }
+
+    public void setSaveState(final boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    public File getFile(final int index) {
+        return new File(directory, String.format("%s-%04d.csv%s", filePrefix, index, compression.extension));
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+        Assert.notNull(directory, "directory 는 필수값 이다.");
+        Assert.hasText(filePrefix, "filePrefix 는 필수값 이다.");
+        Assert.notNull(lineAggregator, "lineAggregator 는 필수값 이다.");
+        Assert.isTrue(maxRowsPerFile > 0 && maxBytesPerFile > 0, "maxRowsPerFile, maxBytesPerFile 는 0 보다 커야 한다.");
+
+        synchronized (lock) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            try {
+                Files.createDirectories(directory.toPath());
+                String indexKey = getExecutionContextKey(FILE_INDEX);
+                if (executionContext.containsKey(indexKey)) {
+                    fileIndex = ((Number) executionContext.get(indexKey)).intValue();
+                    fileBytes = ((Number) executionContext.get(getExecutionContextKey(BYTE_OFFSET))).longValue();
+                    fileRows = ((Number) executionContext.get(getExecutionContextKey(ROW_COUNT))).longValue();
+                    channel = FileChannel.open(getFile(fileIndex).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    channel.truncate(fileBytes);
+                    channel.position(fileBytes);
+                    log.info("[{}] 재시작 -> {} 를 {} byte 로 잘라내고 이어서 쓴다.", getName(), getFile(fileIndex), fileBytes);
+                } else {
+                    fileIndex = 1;
+                    openNewFile();
+                }
+                deleteFilesAfter(fileIndex);
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to open output file in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * lock 없이 chunk 전체를 byte 로 만든다. transaction 이 있으면 commit 될 때까지 붙이지 않는다.
+     */
+    @Override
+    public void write(final List<? extends T> items) throws IOException {
+        if (items.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(items.size() * 64);
+        for (T item : items) {
+            lines.append(lineAggregator.aggregate(item)).append('\n');
+        }
+        Block block = new Block(encode(lines.toString()), items.size());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(block);
+            return;
+        }
+        pendingBlocks().add(block);
+    }
+
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        try {
+            appendPending();
+            synchronized (lock) {
+                flush();
+                if (forceSync) {
+                    channel.force(false);
+                }
+                if (saveState) {
+                    executionContext.putInt(getExecutionContextKey(FILE_INDEX), fileIndex);
+                    executionContext.putLong(getExecutionContextKey(BYTE_OFFSET), fileBytes);
+                    executionContext.putLong(getExecutionContextKey(ROW_COUNT), fileRows);
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to flush " + getFile(fileIndex), e);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        super.close();
+        synchronized (lock) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                flush();
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to close " + getFile(fileIndex), e);
+            } finally {
+                channel = null;
+                buffer = null;
+            }
+        }
+    }
+
+    /**
+     * 현재 transaction 에서 write 한 chunk 들. commit 직전(beforeCommit) 에 붙이고, 끝나면 지운다.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Block> pendingBlocks() {
+        List<Block> blocks = (List<Block>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (blocks == null) {
+            blocks = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingKey, blocks);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(final boolean readOnly) {
+                    try {
+                        appendPending();
+                    } catch (IOException e) {
+                        throw new ItemStreamException("Failed to write " + getFile(fileIndex), e);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+                }
+            });
+        }
+        return blocks;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void appendPending() throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<Block> blocks = (List<Block>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (blocks == null || blocks.isEmpty()) {
+            return;
+        }
+        for (Block block : blocks) {
+            append(block);
+        }
+        blocks.clear();
+    }
+
+    private void append(final Block block) throws IOException {
+        synchronized (lock) {
+            Assert.state(channel != null, "writer 가 open 되지 않았다.");
+            boolean hasRows = fileRows > 0;
+            if (hasRows && (fileRows + block.rows > maxRowsPerFile || fileBytes + block.bytes.length > maxBytesPerFile)) {
+                flush();
+                channel.close();
+                fileIndex++;
+                openNewFile();
+            }
+            put(block.bytes);
+            fileRows += block.rows;
+        }
+    }
+
+    private void openNewFile() throws IOException {
+        channel = FileChannel.open(getFile(fileIndex).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        fileBytes = 0;
+        fileRows = 0;
+        if (header != null) {
+            put(encode(header + "\n"));
+        }
+    }
+
+    private void put(final byte[] bytes) throws IOException {
+        fileBytes += bytes.length;
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 재시작이면 commit 되지 않은 chunk 로 만들어진 다음 파일들을, 처음 시작이면 이전 실행에서 남은 파일들을 지운다.
+     */
+    private void deleteFilesAfter(final int index) throws IOException {
+        for (int next = index + 1; ; next++) {
+            Path path = getFile(next).toPath();
+            if (!Files.deleteIfExists(path)) {
+                return;
+            }
+            log.info("[{}] commit 되지 않은 파일 {} 을 지웠다.", getName(), path);
+        }
+    }
+
+    private byte[] encode(final String text) throws IOException {
+        byte[] bytes = text.getBytes(encoding);
+        if (compression == Compression.NONE) {
+            return bytes;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 64 * 1024)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static class Block {
+
+        private final byte[] bytes;
+        private final int rows;
+
+        Block(final byte[] bytes, final int rows) {
+            this.bytes = bytes;
+            this.rows = rows;
+        }
+    }
+}
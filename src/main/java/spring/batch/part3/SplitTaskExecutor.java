@@ -0,0 +1,67 @@
+package spring.batch.part3;
+
+import io.micrometer.core.instrument.util.StringUtils;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.scope.context.JobContext;
+import org.springframework.batch.core.scope.context.JobSynchronizationManager;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * split 의 flow 들을 동시에 실행하는 TaskExecutor.
+ *
+ * job 은 application 이 뜰 때 만들어지기 때문에 jobParameters 로 동시 실행 수를 바로 넘길 수 없다.
+ * 그래서 flow 를 실행하는 시점에 실행중인 job 의 parameterName 값을 읽어서, job 실행마다 동시 실행 수가 제한된 executor 를 만든다.
+ * (job 실행이 끝나면 JobContext 와 함께 버려진다.)
+ *
+ * 새로 띄운 thread 에는 JobContext 가 없어서 @JobScope step 을 사용할 수 없기 때문에, 실행중인 JobExecution 을 같이 등록해준다.
+ */
+public class SplitTaskExecutor implements TaskExecutor {
+
+    private static final String EXECUTOR_KEY = SplitTaskExecutor.class.getName() + ".EXECUTOR";
+
+    private final String parameterName;
+    private final int defaultConcurrency;
+
+    public SplitTaskExecutor(final String parameterName, final int defaultConcurrency) {
+        this.parameterName = parameterName;
+        this.defaultConcurrency = defaultConcurrency;
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        JobContext context = JobSynchronizationManager.getContext();
+        if (context == null) {
+            createExecutor(defaultConcurrency).execute(task);
+            return;
+        }
+
+        JobExecution jobExecution = context.getJobExecution();
+        getExecutor(context).execute(() -> {
+            JobSynchronizationManager.register(jobExecution);
+            try {
+                task.run();
+            } finally {
+                JobSynchronizationManager.release();
+            }
+        });
+    }
+
+    private TaskExecutor getExecutor(final JobContext context) {
+        synchronized (context) {
+            TaskExecutor executor = (TaskExecutor) context.getAttribute(EXECUTOR_KEY);
+            if (executor == null) {
+                String value = context.getJobExecution().getJobParameters().getString(parameterName);
+                executor = createExecutor(StringUtils.isNotEmpty(value) ? Integer.parseInt(value) : defaultConcurrency);
+                context.setAttribute(EXECUTOR_KEY, executor);
+            }
+            return executor;
+        }
+    }
+
+    private TaskExecutor createExecutor(final int concurrency) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("split-");
+        executor.setConcurrencyLimit(concurrency); // 제한에 걸리면 다른 flow 가 끝날 때까지 execute 에서 기다린다.
+        return executor;
+    }
+}
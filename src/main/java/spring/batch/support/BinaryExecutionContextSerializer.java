@@ -0,0 +1,260 @@
+package spring.batch.support;
+
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ExecutionContext 를 JSON 대신 작은 binary 형식으로 저장한다.
+ *
+ * 기본 serializer(Jackson2ExecutionContextStringSerializer) 는 값마다 class 이름까지 JSON 으로 쓰기 때문에
+ * reader 의 offset, count 처럼 숫자 몇개만 있어도 SERIALIZED_CONTEXT 가 커지고, 길어지면 long context column 까지 넘어간다.
+ *
+ * 형식 : header(magic 1 byte, version 1 byte, flags 1 byte) + 본문.
+ * - 본문은 entry 수 + (key, type tag, value) 의 반복이다. 자주 쓰는 type 은 tag 로 저장하고, 나머지는 java serialization 을 사용한다.
+ * - compress 가 켜져 있고 본문이 compressThreshold byte 이상이면 deflate 로 압축한다. (flags)
+ * - DB column 이 문자열이라서 전체를 Base64 로 쓴다.
+ *
+ * 읽을 때 첫 글자가 '{' 이면 예전 JSON 형식이라고 보고 Jackson2ExecutionContextStringSerializer 로 읽는다.
+ * -> 이미 저장된 ExecutionContext 가 있어도 그대로 재시작 할 수 있다.
+ */
+public class BinaryExecutionContextSerializer implements ExecutionContextSerializer {
+
+    static final int MAGIC = 0xBC;
+    static final int VERSION = 1;
+    private static final int FLAG_DEFLATE = 1;
+
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte DATE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte BYTES = 10;
+    private static final byte BIG_DECIMAL = 11;
+    private static final byte NULL = 12;
+    private static final byte SERIALIZABLE = 127;
+
+    private final ExecutionContextSerializer legacySerializer;
+    private final boolean compress;
+    private final int compressThreshold;
+
+    public BinaryExecutionContextSerializer() {
+        this(new Jackson2ExecutionContextStringSerializer(), false, 512);
+    }
+
+    public BinaryExecutionContextSerializer(final ExecutionContextSerializer legacySerializer,
+                                            final boolean compress, final int compressThreshold) {
+        Assert.notNull(legacySerializer, "legacySerializer 는 필수값 이다.");
+        this.legacySerializer = legacySerializer;
+        this.compress = compress;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public void serialize(final Map<String, Object> context, final OutputStream out) throws IOException {
+        Assert.notNull(context, "context 는 필수값 이다.");
+        Assert.notNull(out, "OutputStream 은 필수값 이다.");
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        DataOutputStream data = new DataOutputStream(body);
+        data.writeInt(context.size());
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            writeString(data, entry.getKey());
+            writeValue(data, entry.getValue());
+        }
+        data.flush();
+
+        int flags = 0;
+        byte[] payload = body.toByteArray();
+        if (compress && payload.length >= compressThreshold) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 2);
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+                deflater.write(payload);
+            }
+            payload = compressed.toByteArray();
+            flags |= FLAG_DEFLATE;
+        }
+
+        byte[] message = new byte[payload.length + 3];
+        message[0] = (byte) MAGIC;
+        message[1] = (byte) VERSION;
+        message[2] = (byte) flags;
+        System.arraycopy(payload, 0, message, 3, payload.length);
+        out.write(Base64.getEncoder().encode(message));
+    }
+
+    @Override
+    public Map<String, Object> deserialize(final InputStream in) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(in, 1);
+        int first = input.read();
+        if (first == -1) {
+            return new HashMap<>();
+        }
+        input.unread(first);
+        if (first == '{') {
+            return legacySerializer.deserialize(input);
+        }
+
+        byte[] message = Base64.getDecoder().decode(readAll(input));
+        if (message.length < 3 || (message[0] & 0xFF) != MAGIC) {
+            throw new IllegalArgumentException("binary ExecutionContext 형식이 아니다.");
+        }
+        if (message[1] != VERSION) {
+            throw new IllegalArgumentException("지원하지 않는 ExecutionContext 형식 version 이다: " + message[1]);
+        }
+
+        InputStream body = new ByteArrayInputStream(message, 3, message.length - 3);
+        if ((message[2] & FLAG_DEFLATE) != 0) {
+            body = new InflaterInputStream(body);
+        }
+        DataInputStream data = new DataInputStream(body);
+        int size = data.readInt();
+        Map<String, Object> context = new HashMap<>(Math.max(16, size * 2));
+        for (int i = 0; i < size; i++) {
+            String key = readString(data);
+            context.put(key, readValue(data));
+        }
+        return context;
+    }
+
+    private void writeValue(final DataOutputStream data, final Object value) throws IOException {
+        if (value == null) {
+            data.writeByte(NULL);
+        } else if (value instanceof String) {
+            data.writeByte(STRING);
+            writeString(data, (String) value);
+        } else if (value instanceof Integer) {
+            data.writeByte(INTEGER);
+            data.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            data.writeByte(LONG);
+            data.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            data.writeByte(DOUBLE);
+            data.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            data.writeByte(BOOLEAN);
+            data.writeBoolean((Boolean) value);
+        } else if (value.getClass() == Date.class) {
+            data.writeByte(DATE);
+            data.writeLong(((Date) value).getTime());
+        } else if (value instanceof Float) {
+            data.writeByte(FLOAT);
+            data.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            data.writeByte(SHORT);
+            data.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            data.writeByte(BYTE);
+            data.writeByte((Byte) value);
+        } else if (value instanceof byte[]) {
+            data.writeByte(BYTES);
+            data.writeInt(((byte[]) value).length);
+            data.write((byte[]) value);
+        } else if (value instanceof BigDecimal) {
+            data.writeByte(BIG_DECIMAL);
+            writeString(data, value.toString());
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+                objectOutput.writeObject(value);
+            }
+            data.writeByte(SERIALIZABLE);
+            data.writeInt(bytes.size());
+            bytes.writeTo(data);
+        } else {
+            throw new IllegalArgumentException("ExecutionContext 에 저장할 수 없는 값이다: " + value.getClass().getName());
+        }
+    }
+
+    private Object readValue(final DataInputStream data) throws IOException {
+        byte type = data.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(data);
+            case INTEGER:
+                return data.readInt();
+            case LONG:
+                return data.readLong();
+            case DOUBLE:
+                return data.readDouble();
+            case BOOLEAN:
+                return data.readBoolean();
+            case DATE:
+                return new Date(data.readLong());
+            case FLOAT:
+                return data.readFloat();
+            case SHORT:
+                return data.readShort();
+            case BYTE:
+                return data.readByte();
+            case BYTES:
+                byte[] bytes = new byte[data.readInt()];
+                data.readFully(bytes);
+                return bytes;
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(data));
+            case SERIALIZABLE:
+                byte[] serialized = new byte[data.readInt()];
+                data.readFully(serialized);
+                try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                    return objectInput.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("ExecutionContext 값을 읽을 수 없다.", e);
+                }
+            default:
+                throw new IOException("알 수 없는 type tag 이다: " + type);
+        }
+    }
+
+    /**
+     * writeUTF 는 65535 byte 까지만 쓸 수 있어서 길이 + UTF-8 byte 로 쓴다.
+     */
+    private void writeString(final DataOutputStream data, final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private String readString(final DataInputStream data) throws IOException {
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readAll(final InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
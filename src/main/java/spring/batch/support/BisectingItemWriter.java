@@ -0,0 +1,221 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * write 가 실패하면 chunk 를 반으로 나눠서 다시 write 하는 writer.
+ *
+ * faultTolerant step 은 write 가 skip 대상 예외로 실패하면 rollback 한 뒤 item 을 하나씩 transaction 을 나눠서 다시 write 한다. (scan)
+ * commit interval 이 크면 잘못된 row 하나 때문에 수천 번의 insert + commit 이 생긴다.
+ * 이 writer 는 실패한 구간만 반씩 나눠서 다시 batch 로 write 하고, 1 개까지 줄어든 item 만 skip 한다.
+ * -> 잘못된 item 이 k 개면 write 호출이 O(n) 이 아닌 O(k log n) 이다.
+ *
+ * - 같은 chunk transaction 안에서 실행된다. 실패한 write 는 JDBC savepoint 로 되돌린다.
+ *   dataSource 는 step 의 transaction manager 가 사용하는 것과 같아야 한다. (DataSourceTransactionManager, JpaTransactionManager)
+ *   savepoint 는 JDBC 로 쓰는 writer 만 되돌릴 수 있다. JpaItemWriter 처럼 persistence context 에 상태가 남는 writer 에는 사용하지 않는다.
+ * - skipLimit 를 넘으면 SkipLimitExceededException 으로 실패한다. (step 은 지금처럼 rollback 된다.)
+ * - skippable 이 아닌 예외는 그대로 던진다.
+ *
+ * faultTolerant() 없이 chunk(...) step 의 writer 를 감싸고, 만든 step 을 applyTo 로 넘겨서 사용한다.
+ * -> return writer.applyTo(stepBuilder.writer(writer).build());
+ * SimpleChunkProcessor 는 write 가 끝나면 chunk 의 item 수를 모두 writeCount 에 더한다.
+ * applyTo 는 step 의 tasklet 을 감싸서 chunk 마다 skip 한 수를 StepContribution 에 반영한다. (writeCount 에서 빼고 writeSkipCount 에 더한다.)
+ * -> StepExecution 을 직접 바꾸지 않아서 multi-thread step 에서도 chunk transaction 과 같이 commit / rollback 된다.
+ * skip 한 item 은 chunk 의 write 가 끝난 뒤 (commit 전) registerSkipListener 로 등록한 SkipListener.onSkipInWrite 로 알려준다.
+ * (faultTolerant 가 아닌 step 에는 SkipListener 를 등록할 수 없어서 writer 에 등록한다.)
+ */
+@Slf4j
+public class BisectingItemWriter<T> implements ItemWriter<T> {
+
+    private final ItemWriter<T> delegate;
+    private final DataSource dataSource;
+    private final Predicate<Throwable> skippable;
+    private final int skipLimit;
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final List<SkipListener<?, ? super T>> skipListeners = new ArrayList<>();
+    private final ThreadLocal<ChunkSkips<T>> currentChunk = new ThreadLocal<>();
+
+    public BisectingItemWriter(final ItemWriter<T> delegate, final DataSource dataSource,
+                               final Predicate<Throwable> skippable, final int skipLimit) {
+        Assert.notNull(delegate, "delegate 는 필수값 이다.");
+        Assert.notNull(skippable, "skippable 은 필수값 이다.");
+        this.delegate = delegate;
+        this.dataSource = dataSource;
+        this.skippable = skippable;
+        this.skipLimit = skipLimit;
+    }
+
+    public void registerSkipListener(final SkipListener<?, ? super T> skipListener) {
+        Assert.notNull(skipListener, "skipListener 는 필수값 이다.");
+        this.skipListeners.add(skipListener);
+    }
+
+    /**
+     * step 의 tasklet (ChunkOrientedTasklet) 을 감싸서 chunk 마다 skip 한 수를 StepContribution 에 반영한다.
+     * tasklet 은 chunk transaction 안에서 실행되고, StepContribution 은 그 뒤 commit 전에 StepExecution 에 더해진다.
+     */
+    public TaskletStep applyTo(final TaskletStep step) {
+        Tasklet tasklet = step.getTasklet();
+        Assert.notNull(tasklet, "step 에 tasklet 이 없다.");
+        step.setTasklet((contribution, chunkContext) -> {
+            ChunkSkips<T> chunk = new ChunkSkips<>(contribution);
+            currentChunk.set(chunk);
+            try {
+                RepeatStatus status = tasklet.execute(contribution, chunkContext);
+                apply(chunk);
+                return status;
+            } finally {
+                currentChunk.remove();
+            }
+        });
+        return step;
+    }
+
+    /**
+     * 이 writer 가 지금까지 skip 한 item 수
+     */
+    public int getSkipCount() {
+        return skipped.get();
+    }
+
+    @Override
+    public void write(final List<? extends T> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        int skippedInChunk = bisect(items);
+        if (skippedInChunk > 0) {
+            log.warn("write 에 실패한 item {} 개를 skip 했다. (chunk {} 개)", skippedInChunk, items.size());
+        }
+    }
+
+    /**
+     * @return 이번 호출에서 skip 한 item 수
+     */
+    private int bisect(final List<? extends T> items) throws Exception {
+        Savepoint savepoint = setSavepoint();
+        try {
+            delegate.write(items);
+            releaseSavepoint(savepoint);
+            return 0;
+        } catch (Exception e) {
+            if (!skippable.test(e)) {
+                throw e;
+            }
+            rollbackToSavepoint(savepoint);
+
+            if (items.size() == 1) {
+                skip(items.get(0), e);
+                return 1;
+            }
+            int middle = items.size() / 2;
+            return bisect(items.subList(0, middle)) + bisect(items.subList(middle, items.size()));
+        }
+    }
+
+    /**
+     * skipLimit 은 step 전체의 skip 수 (아직 commit 되지 않은 이번 chunk 포함) 로 확인한다.
+     * step 밖에서 실행되면 이 writer 가 skip 한 수로 확인하고 SkipListener 도 바로 호출한다.
+     */
+    private void skip(final T item, final Exception e) {
+        ChunkSkips<T> chunk = currentChunk.get();
+        if (chunk == null) {
+            Assert.state(StepSynchronizationManager.getContext() == null,
+                    "step 에서 사용하려면 applyTo 로 step 에 등록해야 한다. (skip 수를 StepContribution 에 반영한다.)");
+            if (skipped.get() >= skipLimit) {
+                throw new SkipLimitExceededException(skipLimit, e);
+            }
+            skipped.incrementAndGet();
+            notifySkip(item, e);
+            return;
+        }
+        if (chunk.contribution.getStepSkipCount() + chunk.items.size() >= skipLimit) {
+            throw new SkipLimitExceededException(skipLimit, e);
+        }
+        chunk.items.add(item);
+        chunk.errors.add(e);
+        log.debug("skip: {}", item, e);
+    }
+
+    /**
+     * SimpleChunkProcessor 가 writeCount 에 더한 skip item 을 빼고 writeSkipCount 에 더한다.
+     */
+    private void apply(final ChunkSkips<T> chunk) {
+        int count = chunk.items.size();
+        if (count == 0) {
+            return;
+        }
+        chunk.contribution.incrementWriteCount(-count);
+        for (int i = 0; i < count; i++) {
+            chunk.contribution.incrementWriteSkipCount();
+            notifySkip(chunk.items.get(i), chunk.errors.get(i));
+        }
+        skipped.addAndGet(count);
+    }
+
+    private void notifySkip(final T item, final Exception e) {
+        for (SkipListener<?, ? super T> skipListener : skipListeners) {
+            skipListener.onSkipInWrite(item, e);
+        }
+    }
+
+    /**
+     * transaction 이 없거나 dataSource 가 없으면 savepoint 없이 실행한다. (테스트, JDBC 를 쓰지 않는 writer)
+     */
+    private Savepoint setSavepoint() throws SQLException {
+        if (dataSource == null || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        return connection().setSavepoint();
+    }
+
+    private void releaseSavepoint(final Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            connection().releaseSavepoint(savepoint);
+        }
+    }
+
+    private void rollbackToSavepoint(final Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            connection().rollback(savepoint);
+        }
+    }
+
+    private Connection connection() {
+        return DataSourceUtils.getConnection(dataSource);
+    }
+
+    /**
+     * chunk 하나에서 skip 한 item. chunk 는 한 thread 에서 실행되어서 thread 마다 하나씩 가진다.
+     */
+    private static class ChunkSkips<T> {
+
+        private final StepContribution contribution;
+        private final List<T> items = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+
+        private ChunkSkips(final StepContribution contribution) {
+            this.contribution = contribution;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 이미 처리한 key 의 item 을 걸러내는 processor. (null 을 반환해서 filter 한다.)
+ *
+ * 처리한 key 는 HashSet 이 아니라 memory-mapping 된 Bloom filter (MappedBloomFilter) 에 담아서 heap 을 사용하지 않는다.
+ * Bloom filter 는 falsePositiveRate 의 확률로 처음 보는 key 를 이미 본 key 로 판단한다.
+ * -> exactCheck 를 주면 filter 가 "이미 봤다" 고 할 때만 exactCheck 로 한번 더 확인한다. (ex. DB 에 id 가 있는지)
+ *    filter 에는 commit 된 key 만 들어가므로 writer 가 저장한 곳을 조회하면 된다.
+ *
+ * 지금 chunk 에서 통과시킨 key 는 heap 의 pending 에만 두고, commit 된 뒤 (afterChunk) filter 에 넣는다.
+ * -> chunk 가 rollback 되면 pending 만 버리면 되고, 다시 처리할 때 중복으로 걸러지지 않는다.
+ *
+ * checkpoint
+ * filter 파일은 두 개를 번갈아 사용한다. chunk 가 commit 되기 직전 (update) 에 commit 된 filter 의 반대쪽 파일에
+ * 직전 chunk 의 key 와 pending 을 넣고 force() 한 뒤 그 checkpoint 번호를 step execution context 에 넣는다.
+ * -> commit 이 실패해도 execution context 는 이전 checkpoint 를 가리키고, 그 파일은 건드리지 않았다.
+ * 재시작하면 execution context 의 checkpoint 파일을 그대로 다시 열어서 입력을 다시 읽지 않고 이어서 걸러낸다.
+ * chunk 마다 파일 전체가 아니라 바뀐 key 만 쓴다.
+ *
+ * step 에 .processor() 와 함께 .listener((ChunkListener) ..), .listener((StepExecutionListener) ..), .stream(..) 으로 등록한다.
+ * pending 을 chunk 단위로 관리하기 때문에 multi-thread step 에서는 사용할 수 없다.
+ * step 이 COMPLETED 로 끝나면 filter 파일을 지운다.
+ */
+@Slf4j
+public class BloomFilterDedupProcessor<T> implements ItemProcessor<T, T>, ItemStream, ChunkListener,
+        StepExecutionListener, InitializingBean {
+
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final ToLongFunction<? super T> keyExtractor;
+
+    private String name = "dedup";
+    private File snapshotDirectory = new File(System.getProperty("java.io.tmpdir"));
+    private long expectedInsertions = 10_000_000;
+    private double falsePositiveRate = 0.01;
+    private LongPredicate exactCheck;
+
+    private long jobInstanceId;
+    private final MappedBloomFilter[] filters = new MappedBloomFilter[2];
+    private long checkpoint;
+    private boolean standbyStale;
+    private boolean standbyWritten;
+    private Set<Long> pending = new HashSet<>();
+    private List<Long> lastCommitted = Collections.emptyList();
+
+    private long duplicates;
+    private long falsePositives;
+
+    public BloomFilterDedupProcessor(final ToLongFunction<? super T> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * execution context 의 key 와 filter 파일 이름에 사용한다.
+     */
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public void setSnapshotDirectory(final File snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * filter 크기를 정할 때 사용한다. 이보다 많이 넣으면 오탐률이 올라간다.
+     */
+    public void setExpectedInsertions(final long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void setFalsePositiveRate(final double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * filter 가 이미 봤다고 한 key 가 정말 처리된 key 인지 확인한다. 없으면 filter 만 믿는다.
+     */
+    public void setExactCheck(final LongPredicate exactCheck) {
+        this.exactCheck = exactCheck;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(keyExtractor, "keyExtractor 는 필수값 이다.");
+        Assert.hasText(name, "name 은 필수값 이다.");
+        Assert.notNull(snapshotDirectory, "snapshotDirectory 는 필수값 이다.");
+        Assert.isTrue(expectedInsertions > 0, "expectedInsertions 는 0 보다 커야 한다.");
+        Assert.isTrue(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate 는 0 과 1 사이 이다.");
+    }
+
+    @Override
+    public void beforeStep(final StepExecution stepExecution) {
+        jobInstanceId = stepExecution.getJobExecution().getJobId();
+    }
+
+    @Override
+    public ExitStatus afterStep(final StepExecution stepExecution) {
+        log.info("{} : 중복 {} 건을 걸러냈다. (exactCheck 로 확인한 오탐 {} 건)", name, duplicates, falsePositives);
+        if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+            closeFilters();
+            for (int slot = 0; slot < filters.length; slot++) {
+                File file = file(slot);
+                if (!file.delete() && file.exists()) {
+                    log.warn("filter 파일을 지우지 못했다: {}", file);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            Files.createDirectories(snapshotDirectory.toPath());
+            if (executionContext.containsKey(key(CHECKPOINT))) {
+                checkpoint = executionContext.getLong(key(CHECKPOINT));
+                filters[active()] = MappedBloomFilter.open(file(active()));
+                if (filters[active()].getCheckpoint() != checkpoint) {
+                    throw new ItemStreamException("filter 파일의 checkpoint 가 execution context 와 다르다: "
+                            + filters[active()].getCheckpoint() + " != " + checkpoint);
+                }
+                filters[standby()] = MappedBloomFilter.createLike(file(standby()), filters[active()]);
+                standbyStale = true;
+            } else {
+                checkpoint = 0;
+                filters[0] = MappedBloomFilter.create(file(0), expectedInsertions, falsePositiveRate);
+                filters[1] = MappedBloomFilter.create(file(1), expectedInsertions, falsePositiveRate);
+                filters[0].force();
+                standbyStale = false;
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("filter 파일을 열 수 없다.", e);
+        }
+        pending = new HashSet<>();
+        lastCommitted = Collections.emptyList();
+        standbyWritten = false;
+    }
+
+    /**
+     * commit 직전에 호출된다. standby 파일을 (commit 된 key + pending) 으로 맞추고 그 checkpoint 를 남긴다.
+     * 바뀐 key 가 없으면 (step 시작 시점의 update 등) active 의 checkpoint 를 그대로 남긴다.
+     * -> 뒤에 afterChunk 가 오지 않는 update 가 standby 의 checkpoint 를 execution context 에 남기지 않게 한다.
+     */
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        if (pending.isEmpty() && lastCommitted.isEmpty()) {
+            executionContext.putLong(key(CHECKPOINT), checkpoint);
+            return;
+        }
+        MappedBloomFilter standby = filters[standby()];
+        if (standbyStale) {
+            standby.copyFrom(filters[active()]);
+            standbyStale = false;
+        } else {
+            lastCommitted.forEach(standby::put);
+        }
+        pending.forEach(standby::put);
+        standby.setCheckpoint(checkpoint + 1);
+        standby.force();
+        standbyWritten = true;
+        executionContext.putLong(key(CHECKPOINT), checkpoint + 1);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        closeFilters();
+    }
+
+    @Override
+    public T process(final T item) {
+        long key = keyExtractor.applyAsLong(item);
+        if (pending.contains(key)) {
+            duplicates++;
+            return null;
+        }
+        if (filters[active()].mightContain(key)) {
+            if (exactCheck == null || exactCheck.test(key)) {
+                duplicates++;
+                return null;
+            }
+            falsePositives++;
+        }
+        pending.add(key);
+        return item;
+    }
+
+    @Override
+    public void beforeChunk(final ChunkContext context) {
+    }
+
+    /**
+     * commit 이 끝났다. update 에서 맞춰둔 standby 가 active 가 된다.
+     */
+    @Override
+    public void afterChunk(final ChunkContext context) {
+        if (standbyWritten) {
+            checkpoint++;
+            lastCommitted = new ArrayList<>(pending);
+            standbyWritten = false;
+        }
+        pending = new HashSet<>();
+    }
+
+    /**
+     * rollback 되었다. standby 에는 rollback 된 key 가 들어갔을 수 있어서 다음 update 에서 active 를 통째로 복사한다.
+     */
+    @Override
+    public void afterChunkError(final ChunkContext context) {
+        pending = new HashSet<>();
+        if (standbyWritten) {
+            standbyStale = true;
+            standbyWritten = false;
+        }
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    private int active() {
+        return (int) (checkpoint % 2);
+    }
+
+    private int standby() {
+        return 1 - active();
+    }
+
+    private File file(final int slot) {
+        return new File(snapshotDirectory, String.format("%s-%d-%d.bloom", name, jobInstanceId, slot));
+    }
+
+    private String key(final String suffix) {
+        return name + "." + suffix;
+    }
+
+    private void closeFilters() {
+        for (int slot = 0; slot < filters.length; slot++) {
+            if (filters[slot] != null) {
+                try {
+                    filters[slot].close();
+                } catch (IOException e) {
+                    log.warn("filter 파일을 닫지 못했다: {}", filters[slot].getFile(), e);
+                }
+                filters[slot] = null;
+            }
+        }
+    }
+}
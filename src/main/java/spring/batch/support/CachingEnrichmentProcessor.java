@@ -0,0 +1,245 @@
+package spring.batch.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * item 마다 참조 데이터를 조회해서 붙여주는 processor 에 크기가 제한된 LRU cache 를 붙인다.
+ *
+ * - keyFunction 으로 item 의 조회 key 를 꺼내고, loader 로 여러 key 를 한번에 조회한다. (where key in (...))
+ * - ItemReadListener 로도 등록하면 chunk 를 읽는 동안 cache 에 없는 key 를 모아두었다가,
+ *   첫 번째 miss 에서 chunk 전체의 key 를 한번에 조회한다. -> chunk 당 query 1 번
+ *   등록하지 않으면 miss 가 난 key 하나씩 조회한다.
+ * - 참조 데이터에 없는 key 도 cache 해서 다시 조회하지 않는다. 이때 enricher 에는 null 이 넘어간다.
+ * - cache 는 chunk, thread 사이에 공유된다. (multi-thread step 에서 사용해도 된다.)
+ *
+ * cache 의 수명은 bean 의 scope 를 따른다. @StepScope 면 step 마다, @JobScope 면 job 마다 새로 만들어진다.
+ *
+ * metric (tag: cache)
+ * - batch.cache.hit, batch.cache.miss : process 할 때 cache 에 있었는지
+ * - batch.cache.eviction : 크기를 넘어서 밀려난 수
+ * - batch.cache.load : loader 로 조회한 key 수
+ * - batch.cache.size : 현재 cache 크기
+ */
+public class CachingEnrichmentProcessor<I, O, K, V> implements ItemProcessor<I, O>, ItemReadListener<I>, ChunkListener {
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Function<I, K> keyFunction;
+    private final Function<Set<K>, Map<K, V>> loader;
+    private final BiFunction<I, V, O> enricher;
+    private final LruCache<K> cache;
+    private final int loadBatchSize;
+
+    private final ThreadLocal<Set<K>> pendingKeys = ThreadLocal.withInitial(LinkedHashSet::new);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loads;
+
+    public CachingEnrichmentProcessor(final String name, final int maximumSize,
+                                      final Function<I, K> keyFunction,
+                                      final Function<Set<K>, Map<K, V>> loader,
+                                      final BiFunction<I, V, O> enricher,
+                                      final MeterRegistry meterRegistry) {
+        this(name, maximumSize, 1000, keyFunction, loader, enricher, meterRegistry);
+    }
+
+    /**
+     * @param loadBatchSize in (...) 하나에 넣을 최대 key 수
+     */
+    public CachingEnrichmentProcessor(final String name, final int maximumSize, final int loadBatchSize,
+                                      final Function<I, K> keyFunction,
+                                      final Function<Set<K>, Map<K, V>> loader,
+                                      final BiFunction<I, V, O> enricher,
+                                      final MeterRegistry meterRegistry) {
+        Assert.hasText(name, "name 은 필수값 이다.");
+        Assert.isTrue(maximumSize > 0, "maximumSize 는 0 보다 커야 한다.");
+        Assert.isTrue(loadBatchSize > 0, "loadBatchSize 는 0 보다 커야 한다.");
+        Assert.notNull(keyFunction, "keyFunction 은 필수값 이다.");
+        Assert.notNull(loader, "loader 는 필수값 이다.");
+        Assert.notNull(enricher, "enricher 는 필수값 이다.");
+        this.keyFunction = keyFunction;
+        this.loader = loader;
+        this.enricher = enricher;
+        this.loadBatchSize = loadBatchSize;
+
+        this.hits = Counter.builder("batch.cache.hit").tag("cache", name).register(meterRegistry);
+        this.misses = Counter.builder("batch.cache.miss").tag("cache", name).register(meterRegistry);
+        this.loads = Counter.builder("batch.cache.load").tag("cache", name).register(meterRegistry);
+        this.cache = new LruCache<>(maximumSize,
+                Counter.builder("batch.cache.eviction").tag("cache", name).register(meterRegistry));
+        // scope 가 끝나면 새 instance 가 만들어지기 때문에 이전 cache 를 가리키는 gauge 는 지우고 다시 등록한다.
+        Gauge previous = meterRegistry.find("batch.cache.size").tag("cache", name).gauge();
+        if (previous != null) {
+            meterRegistry.remove(previous);
+        }
+        Gauge.builder("batch.cache.size", cache, LruCache::size).tag("cache", name).register(meterRegistry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public O process(final I item) {
+        K key = keyFunction.apply(item);
+        if (key == null) {
+            return enricher.apply(item, null);
+        }
+
+        Object value = cache.get(key);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            value = load(key);
+        }
+        return enricher.apply(item, value == NOT_FOUND ? null : (V) value);
+    }
+
+    /**
+     * 이번 chunk 에서 모아둔 key 와 같이 한번에 조회한다.
+     * chunk 의 key 가 maximumSize 보다 많으면 조회한 key 가 cache 에서 바로 밀려날 수 있어서,
+     * cache 를 다시 읽지 않고 조회 결과에서 값을 꺼낸다.
+     */
+    private Object load(final K key) {
+        Set<K> keys = pendingKeys.get();
+        keys.add(key);
+        keys.removeIf(pending -> !pending.equals(key) && cache.contains(pending));
+
+        Object value = null;
+        List<K> batch = new ArrayList<>(Math.min(keys.size(), loadBatchSize));
+        for (K pending : keys) {
+            batch.add(pending);
+            if (batch.size() == loadBatchSize) {
+                value = firstNonNull(value, loadBatch(batch, key));
+            }
+        }
+        value = firstNonNull(value, loadBatch(batch, key));
+        keys.clear();
+        return value;
+    }
+
+    /**
+     * @return batch 에 key 가 있으면 그 조회 결과 (없는 key 면 NOT_FOUND), batch 에 key 가 없으면 null
+     */
+    private Object loadBatch(final List<K> batch, final K key) {
+        if (batch.isEmpty()) {
+            return null;
+        }
+        Map<K, V> loaded = loader.apply(new LinkedHashSet<>(batch));
+        loads.increment(batch.size());
+        Object result = null;
+        for (K pending : batch) {
+            V value = loaded == null ? null : loaded.get(pending);
+            Object cached = value != null ? value : NOT_FOUND;
+            cache.put(pending, cached);
+            if (pending.equals(key)) {
+                result = cached;
+            }
+        }
+        batch.clear();
+        return result;
+    }
+
+    private static Object firstNonNull(final Object first, final Object second) {
+        return first != null ? first : second;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public void beforeRead() {
+    }
+
+    @Override
+    public void afterRead(final I item) {
+        K key = keyFunction.apply(item);
+        if (key != null && !cache.contains(key)) {
+            pendingKeys.get().add(key);
+        }
+    }
+
+    @Override
+    public void onReadError(final Exception ex) {
+    }
+
+    @Override
+    public void beforeChunk(final ChunkContext context) {
+        pendingKeys.remove();
+    }
+
+    @Override
+    public void afterChunk(final ChunkContext context) {
+        pendingKeys.remove();
+    }
+
+    @Override
+    public void afterChunkError(final ChunkContext context) {
+        pendingKeys.remove();
+    }
+
+    /**
+     * access order 의 LinkedHashMap. 여러 thread 가 같이 사용하기 때문에 map 에 대한 접근은 모두 synchronized 로 묶는다.
+     */
+    private static class LruCache<K> {
+
+        private final Map<K, Object> map;
+
+        LruCache(final int maximumSize, final Counter evictions) {
+            this.map = Collections.synchronizedMap(new LinkedHashMap<K, Object>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<K, Object> eldest) {
+                    if (size() > maximumSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            });
+        }
+
+        Object get(final K key) {
+            return map.get(key);
+        }
+
+        /**
+         * get 과 달리 LRU 순서를 바꾸지 않는다.
+         */
+        boolean contains(final K key) {
+            return map.containsKey(key);
+        }
+
+        void put(final K key, final Object value) {
+            map.put(key, value);
+        }
+
+        int size() {
+            return map.size();
+        }
+
+        void clear() {
+            map.clear();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package spring.batch.support;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * chunk 마다 실행되는 StepExecution 저장(update, updateExecutionContext) 을 everyChunks 번 또는 everyMillis 마다 한번으로 줄인다.
+ *
+ * chunk(10) 처럼 commit interval 이 작으면 chunk 마다 BATCH_STEP_EXECUTION update 와
+ * ExecutionContext 직렬화 + BATCH_STEP_EXECUTION_CONTEXT update 가 같이 실행돼서 실제 데이터보다 metadata 를 더 많이 쓴다.
+ * business data 는 지금처럼 chunk 마다 commit 되고, step 의 진행 상황만 가끔 저장한다.
+ *
+ * - step 이 STARTED 가 된 첫 저장과, 실행중(STARTED) 이 아닐 때의 저장(완료, 실패, 중지) 은 항상 바로 저장한다.
+ * - 재시작하면 마지막으로 저장된 checkpoint 부터 다시 읽는다.
+ *   -> 그 뒤에 commit 된 chunk 는 다시 처리되기 때문에 writer 가 같은 item 을 다시 써도 되는 경우(upsert 등) 에만 사용해야 한다.
+ * - JobRepository.update(StepExecution) 에서 확인하는 stop 요청도 저장할 때만 확인된다.
+ */
+public class CoalescingJobRepository implements MethodInterceptor {
+
+    private final int everyChunks;
+    private final long everyMillis;
+    private final Map<Long, Checkpoint> checkpoints = new ConcurrentHashMap<>();
+
+    private CoalescingJobRepository(final int everyChunks, final long everyMillis) {
+        this.everyChunks = everyChunks;
+        this.everyMillis = everyMillis;
+    }
+
+    /**
+     * everyChunks 나 everyMillis 가 0 이하면 그 조건은 사용하지 않는다. 둘 다 0 이하면 delegate 를 그대로 반환한다.
+     */
+    public static JobRepository wrap(final JobRepository delegate, final int everyChunks, final long everyMillis) {
+        if (everyChunks <= 1 && everyMillis <= 0) {
+            return delegate;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(delegate);
+        proxyFactory.addInterface(JobRepository.class);
+        proxyFactory.addAdvice(new CoalescingJobRepository(everyChunks, everyMillis));
+        return (JobRepository) proxyFactory.getProxy();
+    }
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        Object[] arguments = invocation.getArguments();
+        if (!method.startsWith("update") || arguments.length != 1 || !(arguments[0] instanceof StepExecution)) {
+            return invocation.proceed();
+        }
+
+        StepExecution stepExecution = (StepExecution) arguments[0];
+        if (stepExecution.getId() == null) {
+            return invocation.proceed();
+        }
+
+        if (stepExecution.getStatus() != BatchStatus.STARTED) {
+            Checkpoint checkpoint = checkpoints.remove(stepExecution.getId());
+            if (checkpoint != null && checkpoint.contextPending && !"updateExecutionContext".equals(method)) {
+                // 마지막에 저장하지 않고 넘어간 ExecutionContext 가 있으면 같이 저장한다.
+                ((JobRepository) invocation.getThis()).updateExecutionContext(stepExecution);
+            }
+            return invocation.proceed();
+        }
+
+        Checkpoint checkpoint = checkpoints.get(stepExecution.getId());
+        if (checkpoint == null) {
+            // step 이 STARTED 가 된 첫 저장은 바로 한다.
+            checkpoints.put(stepExecution.getId(), new Checkpoint());
+            return invocation.proceed();
+        }
+        if (checkpoint.shouldPersist(method)) {
+            return invocation.proceed();
+        }
+        return null;
+    }
+
+    private class Checkpoint {
+
+        private int stepCalls;
+        private int contextCalls;
+        private long stepPersistedAt = System.currentTimeMillis();
+        private long contextPersistedAt = stepPersistedAt;
+        private boolean contextPending;
+
+        synchronized boolean shouldPersist(final String method) {
+            long now = System.currentTimeMillis();
+            if ("updateExecutionContext".equals(method)) {
+                if (reached(++contextCalls, now - contextPersistedAt)) {
+                    contextCalls = 0;
+                    contextPersistedAt = now;
+                    contextPending = false;
+                    return true;
+                }
+                contextPending = true;
+                return false;
+            }
+            if (reached(++stepCalls, now - stepPersistedAt)) {
+                stepCalls = 0;
+                stepPersistedAt = now;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean reached(final int calls, final long elapsedMillis) {
+            return (everyChunks > 1 && calls >= everyChunks) || (everyMillis > 0 && elapsedMillis >= everyMillis);
+        }
+    }
+}
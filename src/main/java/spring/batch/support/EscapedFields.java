@@ -0,0 +1,96 @@
+package spring.batch.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 여러 field 를 한 줄로 쓰고 다시 읽기 위한 escape 형식. (ExternalSortTasklet 의 run 파일처럼 같은 프로그램이 쓰고 읽는 파일용)
+ *
+ * - field 사이는 tab 으로 구분한다.
+ * - field 안의 \ , tab, 줄바꿈은 \\ , \t , \n , \r 로 쓴다. -> 어떤 문자열도 한 줄에 그대로 들어간다.
+ * - null 은 \N 으로 써서 빈 문자열과 구분한다.
+ *
+ * csv 와 달리 quote 가 없어서 , 나 " 가 들어있어도 field 수가 바뀌지 않는다.
+ */
+public final class EscapedFields {
+
+    private static final char SEPARATOR = '\t';
+    private static final char ESCAPE = '\\';
+    private static final String NULL = "\\N";
+
+    private EscapedFields() {
+    }
+
+    public static String join(final String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(SEPARATOR);
+            }
+            escape(fields[i], line);
+        }
+        return line.toString();
+    }
+
+    public static String[] split(final String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isNull = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == SEPARATOR) {
+                fields.add(isNull ? null : field.toString());
+                field.setLength(0);
+                isNull = false;
+            } else if (c == ESCAPE && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                switch (next) {
+                    case 't':
+                        field.append('\t');
+                        break;
+                    case 'n':
+                        field.append('\n');
+                        break;
+                    case 'r':
+                        field.append('\r');
+                        break;
+                    case 'N':
+                        isNull = true;
+                        break;
+                    default:
+                        field.append(next);
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(isNull ? null : field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static void escape(final String value, final StringBuilder line) {
+        if (value == null) {
+            line.append(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+}
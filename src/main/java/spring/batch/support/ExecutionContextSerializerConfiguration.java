@@ -0,0 +1,89 @@
+package spring.batch.support;
+
+import org.springframework.batch.core.configuration.annotation.BatchConfigurer;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.ExecutionContextSerializer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.batch.BatchProperties;
+import org.springframework.boot.autoconfigure.batch.JpaBatchConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * batch.execution-context.serializer=binary 이면 JobRepository / JobExplorer 가 BinaryExecutionContextSerializer 를 사용한다.
+ * batch.execution-context.compress=true 로 압축도 켤 수 있다.
+ *
+ * BatchConfigurer 를 직접 등록하면 spring boot 의 기본 BatchConfigurer 는 등록되지 않는다.
+ * -> 기본 설정과 같은 JpaBatchConfigurer 를 상속해서 serializer 만 바꾼다.
+ * 설정하지 않으면 기존처럼 JSON(Jackson2ExecutionContextStringSerializer) 으로 저장한다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "batch.execution-context.serializer", havingValue = "binary")
+public class ExecutionContextSerializerConfiguration {
+
+    @Bean
+    public BatchConfigurer binaryExecutionContextBatchConfigurer(BatchProperties properties,
+                                                                 DataSource dataSource,
+                                                                 ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers,
+                                                                 EntityManagerFactory entityManagerFactory,
+                                                                 @Value("${batch.execution-context.compress:false}") boolean compress) {
+        ExecutionContextSerializer serializer = new BinaryExecutionContextSerializer(
+                new Jackson2ExecutionContextStringSerializer(), compress, 512);
+        return new SerializerBatchConfigurer(properties, dataSource,
+                transactionManagerCustomizers.getIfAvailable(), entityManagerFactory, serializer);
+    }
+
+    static class SerializerBatchConfigurer extends JpaBatchConfigurer {
+
+        private final BatchProperties properties;
+        private final DataSource dataSource;
+        private final ExecutionContextSerializer serializer;
+
+        SerializerBatchConfigurer(BatchProperties properties, DataSource dataSource,
+                                  TransactionManagerCustomizers transactionManagerCustomizers,
+                                  EntityManagerFactory entityManagerFactory,
+                                  ExecutionContextSerializer serializer) {
+            super(properties, dataSource, transactionManagerCustomizers, entityManagerFactory);
+            this.properties = properties;
+            this.dataSource = dataSource;
+            this.serializer = serializer;
+        }
+
+        @Override
+        protected JobRepository createJobRepository() throws Exception {
+            JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setTransactionManager(getTransactionManager());
+            factory.setIsolationLevelForCreate(determineIsolationLevel());
+            if (StringUtils.hasText(properties.getTablePrefix())) {
+                factory.setTablePrefix(properties.getTablePrefix());
+            }
+            factory.setSerializer(serializer);
+            factory.afterPropertiesSet();
+            return factory.getObject();
+        }
+
+        @Override
+        protected JobExplorer createJobExplorer() throws Exception {
+            JobExplorerFactoryBean factory = new JobExplorerFactoryBean();
+            factory.setDataSource(dataSource);
+            if (StringUtils.hasText(properties.getTablePrefix())) {
+                factory.setTablePrefix(properties.getTablePrefix());
+            }
+            factory.setSerializer(serializer);
+            factory.afterPropertiesSet();
+            return factory.getObject();
+        }
+    }
+}
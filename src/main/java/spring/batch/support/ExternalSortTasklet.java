@@ -0,0 +1,204 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.transform.LineAggregator;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * heap 보다 큰 입력을 정렬하는 external merge sort 의 앞 단계. (뒷 단계는 SortedRunsItemReader)
+ *
+ * execute 한 번에 memoryBudgetBytes 만큼 읽어서 memory 에서 정렬하고, 정렬된 run 파일 하나로 spill 한다.
+ * -> CONTINUABLE 을 반환해서 run 하나가 transaction 하나가 된다.
+ * 각 commit 마다 delegate reader 의 위치와 완료된 run 수가 step execution context 에 같이 저장된다.
+ * -> 재시작하면 완료된 run 은 그대로 두고 그 다음 item 부터 다시 읽는다. (쓰다 만 run 은 덮어쓴다.)
+ * 이 tasklet 은 ItemStream 이라 step 에 .stream(tasklet) 으로 등록해야 delegate reader 도 open / update 된다.
+ *
+ * 입력을 모두 읽으면 run 파일 목록을 job execution context 의 {name}.runs 에 넣는다.
+ *
+ * memory 사용량은 run 파일에 쓸 line 의 길이로 추정한다. item 하나가 line 과 비슷한 크기라고 가정한다.
+ * line 에는 줄바꿈이 없어야 한다.
+ */
+@Slf4j
+public class ExternalSortTasklet<T> implements Tasklet, ItemStream, InitializingBean {
+
+    private static final String RUN_COUNT = "run.count";
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+    private final ItemReader<? extends T> delegate;
+    private final Comparator<? super T> comparator;
+    private final LineAggregator<T> lineAggregator;
+
+    private String name = "externalSort";
+    private File spillDirectory = new File(System.getProperty("java.io.tmpdir"));
+    private long memoryBudgetBytes = 64L * 1024 * 1024;
+
+    private int runCount;
+
+    public ExternalSortTasklet(final ItemReader<? extends T> delegate,
+                               final Comparator<? super T> comparator,
+                               final LineAggregator<T> lineAggregator) {
+        this.delegate = delegate;
+        this.comparator = comparator;
+        this.lineAggregator = lineAggregator;
+    }
+
+    /**
+     * execution context 의 key 와 run 파일 이름에 사용한다. SortedRunsItemReader 와 같은 이름을 사용해야 한다.
+     */
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public void setSpillDirectory(final File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * run 하나를 만들 때 memory 에 올릴 item 의 추정 크기. 이 값을 넘으면 정렬해서 spill 한다.
+     */
+    public void setMemoryBudgetBytes(final long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(delegate, "delegate 는 필수값 이다.");
+        Assert.notNull(comparator, "comparator 는 필수값 이다.");
+        Assert.notNull(lineAggregator, "lineAggregator 는 필수값 이다.");
+        Assert.hasText(name, "name 은 필수값 이다.");
+        Assert.notNull(spillDirectory, "spillDirectory 는 필수값 이다.");
+        Assert.isTrue(memoryBudgetBytes > 0, "memoryBudgetBytes 는 0 보다 커야 한다.");
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).open(executionContext);
+        }
+        runCount = executionContext.containsKey(key(RUN_COUNT)) ? executionContext.getInt(key(RUN_COUNT)) : 0;
+        try {
+            Files.createDirectories(spillDirectory.toPath());
+        } catch (IOException e) {
+            throw new ItemStreamException("spill directory 를 만들 수 없다: " + spillDirectory, e);
+        }
+    }
+
+    @Override
+    public void update(final ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).update(executionContext);
+        }
+        executionContext.putInt(key(RUN_COUNT), runCount);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (delegate instanceof ItemStream) {
+            ((ItemStream) delegate).close();
+        }
+    }
+
+    @Override
+    public RepeatStatus execute(final StepContribution contribution, final ChunkContext chunkContext) throws Exception {
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+        long jobInstanceId = stepExecution.getJobExecution().getJobId();
+        List<Entry<T>> entries = new ArrayList<>();
+        long estimatedBytes = 0;
+        boolean exhausted = false;
+
+        while (estimatedBytes < memoryBudgetBytes) {
+            T item = delegate.read();
+            if (item == null) {
+                exhausted = true;
+                break;
+            }
+            String line = lineAggregator.aggregate(item);
+            entries.add(new Entry<>(item, line));
+            // line 의 char 배열 + 비슷한 크기의 item
+            estimatedBytes += ENTRY_OVERHEAD_BYTES + 4L * line.length();
+            contribution.incrementReadCount();
+        }
+
+        if (!entries.isEmpty()) {
+            spill(entries, jobInstanceId);
+            contribution.incrementWriteCount(entries.size());
+        }
+
+        if (!exhausted) {
+            return RepeatStatus.CONTINUABLE;
+        }
+
+        stepExecution.getJobExecution().getExecutionContext().putString(runsKey(name), runFiles(jobInstanceId).stream()
+                .map(File::getAbsolutePath)
+                .collect(Collectors.joining("\n")));
+        log.info("{} 개의 item 을 {} 개의 run 으로 정렬했다.", stepExecution.getReadCount() + entries.size(), runCount);
+        return RepeatStatus.FINISHED;
+    }
+
+    private void spill(final List<Entry<T>> entries, final long jobInstanceId) throws IOException {
+        // List.sort 는 stable 이라 같은 값은 읽은 순서를 유지한다.
+        entries.sort((left, right) -> comparator.compare(left.item, right.item));
+
+        File runFile = runFile(jobInstanceId, runCount);
+        try (BufferedWriter writer = Files.newBufferedWriter(runFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Entry<T> entry : entries) {
+                writer.write(entry.line);
+                writer.newLine();
+            }
+        }
+        runCount++;
+    }
+
+    private List<File> runFiles(final long jobInstanceId) {
+        return IntStream.range(0, runCount)
+                .mapToObj(index -> runFile(jobInstanceId, index))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 같은 job instance 의 재시작은 같은 파일 이름을 사용해서 완료된 run 을 다시 찾는다.
+     */
+    private File runFile(final long jobInstanceId, final int index) {
+        return new File(spillDirectory, String.format("%s-%d-%04d.run", name, jobInstanceId, index));
+    }
+
+    private String key(final String suffix) {
+        return name + "." + suffix;
+    }
+
+    static String runsKey(final String name) {
+        return name + ".runs";
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final String line;
+
+        Entry(final T item, final String line) {
+            this.item = item;
+            this.line = line;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.LazyInitializationBeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * batch.launch.lazy=true 이면 spring.batch.job.names 로 고른 job 의 bean 만 만든다.
+ * -> ./gradlew bootRun --args='--job.name=helloJob --batch.launch.lazy=true'
+ *
+ * 기본으로는 모든 configuration 의 job, step, reader 가 시작할 때 만들어진다.
+ * (afterPropertiesSet, paging query provider 생성, EntityManagerFactory 사용 등)
+ * cron 으로 짧은 job 을 자주 실행하면 이 시간이 대부분이라서, 실행할 job 과 그 job 이 참조하는 bean 만 만들도록 한다.
+ *
+ * - 모든 bean 을 lazy 로 만든다. (spring.main.lazy-initialization 과 같다.)
+ * - JobLauncherApplicationRunner 는 Collection<Job> 을 주입 받아서 모든 Job 을 만들어 버리기 때문에,
+ *   고르지 않은 Job bean 은 autowire 대상에서 뺀다.
+ *
+ * job 이름과 Job bean 이름이 같다고 가정한다. (이 프로젝트의 @Bean method 이름이 job 이름이다.)
+ * 고른 이름에 해당하는 bean 이 없으면 Job bean 은 건드리지 않는다. -> 지금처럼 모든 Job 을 만들고 이름으로 찾는다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "batch.launch.lazy", havingValue = "true")
+public class LazyJobLaunchConfiguration {
+
+    @Bean
+    public static LazyInitializationBeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+        return new LazyInitializationBeanFactoryPostProcessor();
+    }
+
+    @Bean
+    public static SelectedJobBeanFactoryPostProcessor selectedJobBeanFactoryPostProcessor() {
+        return new SelectedJobBeanFactoryPostProcessor();
+    }
+
+    @Slf4j
+    static class SelectedJobBeanFactoryPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+        private Environment environment;
+
+        @Override
+        public void setEnvironment(final Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) throws BeansException {
+            Set<String> selected = new HashSet<>(Arrays.asList(
+                    StringUtils.commaDelimitedListToStringArray(environment.getProperty("spring.batch.job.names", ""))));
+            selected.removeIf(name -> !StringUtils.hasText(name));
+
+            // allowEagerInit=false -> 여기서 FactoryBean 등을 만들지 않고 bean 정의만 본다.
+            String[] jobBeanNames = beanFactory.getBeanNamesForType(Job.class, true, false);
+            if (selected.isEmpty() || !Arrays.asList(jobBeanNames).containsAll(selected)) {
+                log.warn("spring.batch.job.names={} 에 해당하는 Job bean 을 모두 찾지 못해서 모든 Job 을 만든다.", selected);
+                return;
+            }
+
+            for (String beanName : jobBeanNames) {
+                if (!selected.contains(beanName)) {
+                    BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                    beanDefinition.setAutowireCandidate(false);
+                    beanDefinition.setLazyInit(true);
+                }
+            }
+            log.info("{} 의 bean 만 만든다.", selected);
+        }
+    }
+}
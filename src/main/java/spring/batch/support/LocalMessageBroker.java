@@ -0,0 +1,125 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 실제 broker (RabbitMQ, Kafka ..) 대신 사용하는 in-process broker.
+ *
+ * queue 는 이 JVM 의 memory 에 있고, 같은 JVM 에서는 send / receive 를 바로 호출한다.
+ * 다른 JVM (worker) 은 127.0.0.1 의 socket 으로 붙어서 LocalMessageBrokerClient 로 사용한다.
+ * 한 줄이 명령 하나이다.
+ * - SEND {queue} {payload}     -> OK
+ * - RECEIVE {queue} {millis}   -> MSG {payload} | NONE
+ *
+ * message 는 저장하지 않는다. broker 를 띄운 JVM 이 죽으면 queue 에 남은 message 는 사라진다.
+ * (remote partitioning 에서는 partition 의 상태가 job repository 에 남아있어서 재시작하면 다시 보낸다.)
+ */
+@Slf4j
+public class LocalMessageBroker implements MessageQueue, Closeable {
+
+    static final String SEND = "SEND";
+    static final String RECEIVE = "RECEIVE";
+    static final String OK = "OK";
+    static final String MESSAGE = "MSG";
+    static final String NONE = "NONE";
+
+    private final Map<String, BlockingQueue<String>> queues = new ConcurrentHashMap<>();
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+
+    /**
+     * @param port 0 이면 비어있는 port 를 사용한다. (getPort)
+     */
+    public LocalMessageBroker(final int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::accept, "local-broker-" + serverSocket.getLocalPort());
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+        log.info("local broker 를 시작했다. port: {}", serverSocket.getLocalPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void send(final String queue, final String payload) {
+        queue(queue).add(payload);
+    }
+
+    @Override
+    public String receive(final String queue, final long timeoutMillis) throws InterruptedException {
+        return queue(queue).poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private BlockingQueue<String> queue(final String name) {
+        return queues.computeIfAbsent(name, key -> new LinkedBlockingQueue<>());
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "local-broker-connection-" + socket.getPort());
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("local broker 가 연결을 받지 못했다.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 연결 하나는 한 thread 에서 명령을 순서대로 처리한다. RECEIVE 는 message 가 올 때까지 이 연결만 기다린다.
+     */
+    private void serve(final Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] command = line.split(" ", 3);
+                if (SEND.equals(command[0]) && command.length == 3) {
+                    send(command[1], command[2]);
+                    writer.write(OK);
+                } else if (RECEIVE.equals(command[0]) && command.length == 3) {
+                    String payload = receive(command[1], Long.parseLong(command[2]));
+                    writer.write(payload != null ? MESSAGE + " " + payload : NONE);
+                } else {
+                    throw new IOException("알 수 없는 명령이다: " + line);
+                }
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                log.warn("local broker 연결이 끊어졌다.", e);
+            }
+        }
+    }
+}
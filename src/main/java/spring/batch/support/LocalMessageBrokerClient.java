@@ -0,0 +1,67 @@
+package spring.batch.support;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 다른 JVM 의 LocalMessageBroker 에 socket 으로 붙는다.
+ * 명령 하나를 보내고 응답을 받을 때까지 기다리기 때문에 thread 사이에 공유하면 synchronized 로 하나씩 보낸다.
+ * broker 와 연결이 끊어지면 UncheckedIOException 을 던진다. -> worker 는 manager 가 없어진 것으로 보고 끝난다.
+ */
+public class LocalMessageBrokerClient implements MessageQueue, Closeable {
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final BufferedWriter writer;
+
+    public LocalMessageBrokerClient(final int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void send(final String queue, final String payload) {
+        String response = call(LocalMessageBroker.SEND + " " + queue + " " + payload);
+        if (!LocalMessageBroker.OK.equals(response)) {
+            throw new IllegalStateException("broker 가 message 를 받지 않았다: " + response);
+        }
+    }
+
+    @Override
+    public synchronized String receive(final String queue, final long timeoutMillis) {
+        String response = call(LocalMessageBroker.RECEIVE + " " + queue + " " + timeoutMillis);
+        if (response.startsWith(LocalMessageBroker.MESSAGE + " ")) {
+            return response.substring(LocalMessageBroker.MESSAGE.length() + 1);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private String call(final String command) {
+        try {
+            writer.write(command);
+            writer.newLine();
+            writer.flush();
+            String response = reader.readLine();
+            if (response == null) {
+                throw new IOException("broker 와 연결이 끊어졌다.");
+            }
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
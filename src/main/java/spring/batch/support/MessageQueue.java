@@ -0,0 +1,17 @@
+package spring.batch.support;
+
+/**
+ * remote partitioning 에서 manager 와 worker 가 주고 받는 message 통로.
+ * queue 이름으로 구분하고, payload 는 줄바꿈이 없는 문자열이다.
+ *
+ * 같은 queue 를 여러 consumer 가 receive 하면 message 하나는 그 중 하나에게만 간다. (competing consumers)
+ */
+public interface MessageQueue {
+
+    void send(String queue, String payload);
+
+    /**
+     * @return timeoutMillis 동안 message 가 없으면 null
+     */
+    String receive(String queue, long timeoutMillis) throws InterruptedException;
+}
@@ -0,0 +1,82 @@
+package spring.batch.support;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.builder.TaskletStepBuilder;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * StepBuilderFactory 로 만드는 모든 step 에 StepMetricsListener 를 자동으로 등록한다.
+ *
+ * - 모든 step : StepExecutionListener
+ * - tasklet step : + ChunkListener
+ * - chunk step : + ChunkListener, ItemReadListener, ItemProcessListener, ItemWriteListener
+ * configuration 에서는 지금처럼 stepBuilderFactory.get("...") 으로 step 을 만들면 된다.
+ */
+public class MeteredStepBuilderFactory extends StepBuilderFactory {
+
+    private final JobRepository jobRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final StepMetricsListener listener;
+
+    public MeteredStepBuilderFactory(final JobRepository jobRepository,
+                                     final PlatformTransactionManager transactionManager,
+                                     final StepMetricsListener listener) {
+        super(jobRepository, transactionManager);
+        this.jobRepository = jobRepository;
+        this.transactionManager = transactionManager;
+        this.listener = listener;
+    }
+
+    @Override
+    public StepBuilder get(final String name) {
+        StepBuilder builder = new MeteredStepBuilder(name, listener)
+                .repository(jobRepository)
+                .transactionManager(transactionManager);
+        return builder.listener((StepExecutionListener) listener);
+    }
+
+    private static class MeteredStepBuilder extends StepBuilder {
+
+        private final StepMetricsListener listener;
+
+        MeteredStepBuilder(final String name, final StepMetricsListener listener) {
+            super(name);
+            this.listener = listener;
+        }
+
+        @Override
+        public TaskletStepBuilder tasklet(final Tasklet tasklet) {
+            TaskletStepBuilder builder = super.tasklet(tasklet);
+            builder.listener((ChunkListener) listener);
+            return builder;
+        }
+
+        @Override
+        public <I, O> SimpleStepBuilder<I, O> chunk(final int chunkSize) {
+            return register(super.chunk(chunkSize));
+        }
+
+        @Override
+        public <I, O> SimpleStepBuilder<I, O> chunk(final CompletionPolicy completionPolicy) {
+            return register(super.chunk(completionPolicy));
+        }
+
+        private <I, O> SimpleStepBuilder<I, O> register(final SimpleStepBuilder<I, O> builder) {
+            builder.listener((ChunkListener) listener);
+            builder.listener((ItemReadListener<Object>) listener);
+            builder.listener((ItemProcessListener<Object, Object>) listener);
+            builder.listener((ItemWriteListener<Object>) listener);
+            return builder;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.StepExecutionSplitter;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * manager 쪽 PartitionHandler. partition 마다 StepExecution 실행 요청을 MessageQueue 로 보내고 worker 의 응답을 기다린다.
+ * (spring-batch-integration 의 MessageChannelPartitionHandler 와 같은 역할)
+ *
+ * - 요청 : partition.requests queue 에 {replyQueue}\t{jobExecutionId}\t{stepExecutionId}\t{stepName}
+ *   worker 들이 같은 queue 에서 하나씩 가져간다. -> 먼저 끝난 worker 가 다음 partition 을 가져간다.
+ * - 응답 : manager step 마다 따로 만든 reply queue 로
+ *   PROGRESS\t{stepExecutionId}\t{readCount}\t{writeCount} : 실행 중인 partition 의 진행 상황 (log 로 남긴다.)
+ *   DONE\t{stepExecutionId}\t{status} : partition 이 끝났다.
+ * partition 의 결과는 message 가 아니라 job repository 에서 다시 읽는다. -> manager 와 worker 는 같은 DB 를 봐야 한다.
+ * 단, worker 가 step 을 실행하지도 못했으면 (step 을 찾지 못함 등) job repository 에는 STARTING 으로 남아있어서
+ * DONE 의 status 가 COMPLETED 가 아닌데 job repository 와 다르면 그 partition 을 FAILED 로 돌려준다. -> manager step 도 실패한다.
+ *
+ * timeoutMillis 안에 모든 partition 이 끝나지 않으면 TimeoutException 으로 manager step 이 실패한다.
+ * workersAlive 가 false 를 돌려주면 (worker JVM 이 죽었다) timeout 을 기다리지 않고 바로 실패한다.
+ */
+@Slf4j
+public class RemotePartitionHandler implements PartitionHandler {
+
+    public static final String REQUESTS = "partition.requests";
+    public static final String STOP = "STOP";
+    static final String PROGRESS = "PROGRESS";
+    static final String DONE = "DONE";
+    static final String SEPARATOR = "\t";
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final MessageQueue messageQueue;
+    private final JobExplorer jobExplorer;
+    private final int gridSize;
+    private final long timeoutMillis;
+    private final BooleanSupplier workersAlive;
+
+    public RemotePartitionHandler(final MessageQueue messageQueue, final JobExplorer jobExplorer,
+                                  final int gridSize, final long timeoutMillis) {
+        this(messageQueue, jobExplorer, gridSize, timeoutMillis, () -> true);
+    }
+
+    public RemotePartitionHandler(final MessageQueue messageQueue, final JobExplorer jobExplorer,
+                                  final int gridSize, final long timeoutMillis, final BooleanSupplier workersAlive) {
+        Assert.notNull(messageQueue, "messageQueue 는 필수값 이다.");
+        Assert.notNull(jobExplorer, "jobExplorer 는 필수값 이다.");
+        Assert.isTrue(gridSize > 0, "gridSize 는 0 보다 커야 한다.");
+        Assert.isTrue(timeoutMillis > 0, "timeoutMillis 는 0 보다 커야 한다.");
+        Assert.notNull(workersAlive, "workersAlive 는 필수값 이다.");
+        this.messageQueue = messageQueue;
+        this.jobExplorer = jobExplorer;
+        this.gridSize = gridSize;
+        this.timeoutMillis = timeoutMillis;
+        this.workersAlive = workersAlive;
+    }
+
+    @Override
+    public Collection<StepExecution> handle(final StepExecutionSplitter stepSplitter,
+                                            final StepExecution managerStepExecution) throws Exception {
+        Set<StepExecution> partitions = stepSplitter.split(managerStepExecution, gridSize);
+        if (partitions.isEmpty()) {
+            return partitions;
+        }
+
+        long jobExecutionId = managerStepExecution.getJobExecutionId();
+        String replyQueue = "partition.replies." + managerStepExecution.getId();
+        Set<Long> remaining = new HashSet<>();
+        Map<Long, BatchStatus> reported = new HashMap<>();
+        for (StepExecution partition : partitions) {
+            remaining.add(partition.getId());
+            messageQueue.send(REQUESTS, String.join(SEPARATOR, replyQueue, String.valueOf(jobExecutionId),
+                    String.valueOf(partition.getId()), stepSplitter.getStepName()));
+        }
+        log.info("{} 개의 partition 을 worker 에게 보냈다.", partitions.size());
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!remaining.isEmpty()) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new TimeoutException(remaining.size() + " 개의 partition 이 " + timeoutMillis + "ms 안에 끝나지 않았다: " + remaining);
+            }
+            if (!workersAlive.getAsBoolean()) {
+                throw new IllegalStateException("worker JVM 이 종료되어서 " + remaining.size() + " 개의 partition 을 기다리지 않는다: " + remaining);
+            }
+            String reply = messageQueue.receive(replyQueue, Math.min(wait, POLL_MILLIS));
+            if (reply == null) {
+                continue;
+            }
+            String[] fields = reply.split(SEPARATOR);
+            long stepExecutionId = Long.parseLong(fields[1]);
+            if (PROGRESS.equals(fields[0])) {
+                log.info("partition {} : read {}, write {}", stepExecutionId, fields[2], fields[3]);
+            } else if (DONE.equals(fields[0])) {
+                remaining.remove(stepExecutionId);
+                reported.put(stepExecutionId, BatchStatus.valueOf(fields[2]));
+                log.info("partition {} 이 {} 로 끝났다. 남은 partition {} 개", stepExecutionId, fields[2], remaining.size());
+            }
+        }
+
+        List<StepExecution> results = new ArrayList<>(partitions.size());
+        for (StepExecution partition : partitions) {
+            StepExecution result = jobExplorer.getStepExecution(jobExecutionId, partition.getId());
+            BatchStatus status = reported.get(partition.getId());
+            if (status != BatchStatus.COMPLETED && result.getStatus() != status) {
+                log.warn("partition {} 은 job repository 에 {} 로 남아있지만 worker 는 {} 로 응답했다.",
+                        result.getStepName(), result.getStatus(), status);
+                result.setStatus(status == BatchStatus.STOPPED ? BatchStatus.STOPPED : BatchStatus.FAILED);
+                result.setExitStatus(ExitStatus.FAILED.addExitDescription("worker 가 " + status + " 로 응답했다."));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,133 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * worker 쪽. RemotePartitionHandler 가 보낸 요청을 하나씩 가져와서 partition 의 StepExecution 을 실행한다.
+ * (spring-batch-integration 의 StepExecutionRequestHandler 와 같은 역할)
+ *
+ * StepExecution 은 job repository 에서 읽고, 실행 결과도 step 이 job repository 에 저장한다.
+ * step 을 찾지 못하거나 실행 전에 실패하면 step 이 저장하지 않기 때문에 여기서 FAILED 로 저장한다.
+ * 실행하는 동안 progressMillis 마다 read / write 수를 reply queue 로 보내고, 끝나면 DONE 을 보낸다.
+ *
+ * STOP message 를 받거나 broker 와 연결이 끊어지면 (manager 가 끝났다) run 이 끝난다.
+ */
+@Slf4j
+public class RemotePartitionWorker implements Runnable {
+
+    private static final long POLL_MILLIS = 1000;
+
+    private final MessageQueue messageQueue;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final Function<String, Step> stepLocator;
+    private final long progressMillis;
+
+    public RemotePartitionWorker(final MessageQueue messageQueue, final JobExplorer jobExplorer,
+                                 final JobRepository jobRepository, final Function<String, Step> stepLocator,
+                                 final long progressMillis) {
+        this.messageQueue = messageQueue;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.stepLocator = stepLocator;
+        this.progressMillis = progressMillis;
+    }
+
+    @Override
+    public void run() {
+        ScheduledExecutorService progressReporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                String request = messageQueue.receive(RemotePartitionHandler.REQUESTS, POLL_MILLIS);
+                if (request == null) {
+                    continue;
+                }
+                if (RemotePartitionHandler.STOP.equals(request)) {
+                    log.info("STOP 을 받았다.");
+                    return;
+                }
+                execute(request, progressReporter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (UncheckedIOException e) {
+            log.info("broker 와 연결이 끊어졌다. worker 를 끝낸다.");
+        } finally {
+            progressReporter.shutdownNow();
+        }
+    }
+
+    private void execute(final String request, final ScheduledExecutorService progressReporter) {
+        String[] fields = request.split(RemotePartitionHandler.SEPARATOR);
+        String replyQueue = fields[0];
+        long jobExecutionId = Long.parseLong(fields[1]);
+        long stepExecutionId = Long.parseLong(fields[2]);
+        String stepName = fields[3];
+
+        StepExecution stepExecution = jobExplorer.getStepExecution(jobExecutionId, stepExecutionId);
+        if (stepExecution == null) {
+            log.warn("StepExecution 을 찾을 수 없다. jobExecutionId: {}, stepExecutionId: {}", jobExecutionId, stepExecutionId);
+            reply(replyQueue, RemotePartitionHandler.DONE, stepExecutionId, BatchStatus.UNKNOWN.name());
+            return;
+        }
+        if (!stepExecution.getJobExecution().isRunning()) {
+            // manager 가 먼저 실패해서 (timeout, worker 종료) queue 에 남은 요청이다. 재시작하면 새 StepExecution 으로 다시 보낸다.
+            log.warn("이미 끝난 job execution 의 partition 이라서 실행하지 않는다: {}", stepExecution.getStepName());
+            reply(replyQueue, RemotePartitionHandler.DONE, stepExecutionId, BatchStatus.ABANDONED.name());
+            return;
+        }
+
+        ScheduledFuture<?> progress = progressReporter.scheduleAtFixedRate(
+                () -> reply(replyQueue, RemotePartitionHandler.PROGRESS, stepExecutionId,
+                        stepExecution.getReadCount() + RemotePartitionHandler.SEPARATOR + stepExecution.getWriteCount()),
+                progressMillis, progressMillis, TimeUnit.MILLISECONDS);
+        try {
+            stepLocator.apply(stepName).execute(stepExecution);
+        } catch (JobInterruptedException e) {
+            stepExecution.setStatus(BatchStatus.STOPPED);
+        } catch (Exception e) {
+            log.error("partition {} 을 실행하지 못했다.", stepExecution.getStepName(), e);
+            fail(stepExecution, e);
+        } finally {
+            progress.cancel(false);
+        }
+        reply(replyQueue, RemotePartitionHandler.DONE, stepExecutionId, stepExecution.getStatus().name());
+    }
+
+    private void fail(final StepExecution stepExecution, final Exception e) {
+        stepExecution.addFailureException(e);
+        stepExecution.setStatus(BatchStatus.FAILED);
+        stepExecution.setExitStatus(ExitStatus.FAILED.addExitDescription(e));
+        if (stepExecution.getEndTime() == null) {
+            stepExecution.setEndTime(new Date());
+        }
+        try {
+            jobRepository.update(stepExecution);
+        } catch (Exception updateError) {
+            log.error("partition {} 의 실패를 저장하지 못했다.", stepExecution.getStepName(), updateError);
+        }
+    }
+
+    private void reply(final String replyQueue, final String type, final long stepExecutionId, final String value) {
+        messageQueue.send(replyQueue, String.join(RemotePartitionHandler.SEPARATOR, type, String.valueOf(stepExecutionId), value));
+    }
+}
@@ -0,0 +1,141 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 한 대의 machine 에서 remote partitioning 을 실행한다.
+ *
+ * 처음 partitionHandler 를 요청받을 때 LocalMessageBroker 를 띄우고 worker JVM 을 workers 개 실행한다.
+ * worker 는 이 JVM 과 같은 classpath, main class 로 실행되고 batch.remote.worker=true 로 RemotePartitionWorker 만 실행한다.
+ * -> 실제 broker 를 붙일 때는 MessageQueue 구현과 worker 를 띄우는 방법만 바꾸면 된다.
+ *
+ * worker 는 workerArguments 로 manager 와 같은 DB 에 붙는다. (schema / data 초기화와 ddl 은 하지 않는다.)
+ * worker 의 출력은 logDirectory 의 remote-worker-{n}.log 에 남는다.
+ * 실행 중에 worker JVM 이 하나라도 죽으면 그 worker 가 맡은 partition 은 끝나지 않아서 handler 는 timeout 을 기다리지 않고 바로 실패한다.
+ * 죽은 worker 는 다음 partitionHandler 를 요청받을 때 다시 실행한다.
+ * context 가 닫히면 worker 에게 STOP 을 보내고, 끝나지 않으면 강제로 종료한다.
+ */
+@Slf4j
+public class RemotePartitioning implements DisposableBean {
+
+    private static final long STOP_WAIT_SECONDS = 10;
+
+    private final JobExplorer jobExplorer;
+    private final int workers;
+    private final int brokerPort;
+    private final long timeoutMillis;
+    private final String mainClass;
+    private final String workerHeap;
+    private final File logDirectory;
+    private final WorkerArguments workerArguments;
+
+    private LocalMessageBroker broker;
+    private List<String> arguments;
+    private final List<Process> processes = new ArrayList<>();
+
+    /**
+     * @param workerArguments worker 를 실행할 때 넘길 인자. worker 를 처음 실행할 때 만든다. (DB 주소 확인 등)
+     */
+    public RemotePartitioning(final JobExplorer jobExplorer, final int workers, final int brokerPort,
+                              final long timeoutMillis, final String mainClass, final String workerHeap,
+                              final File logDirectory, final WorkerArguments workerArguments) {
+        this.jobExplorer = jobExplorer;
+        this.workers = workers;
+        this.brokerPort = brokerPort;
+        this.timeoutMillis = timeoutMillis;
+        this.mainClass = mainClass;
+        this.workerHeap = workerHeap;
+        this.logDirectory = logDirectory;
+        this.workerArguments = workerArguments;
+    }
+
+    public synchronized PartitionHandler partitionHandler(final int gridSize) throws IOException {
+        start();
+        return new RemotePartitionHandler(broker, jobExplorer, gridSize, timeoutMillis, this::workersAlive);
+    }
+
+    synchronized boolean workersAlive() {
+        return !processes.isEmpty() && processes.stream().allMatch(Process::isAlive);
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (broker == null) {
+            return;
+        }
+        processes.forEach(process -> broker.send(RemotePartitionHandler.REQUESTS, RemotePartitionHandler.STOP));
+        for (Process process : processes) {
+            if (!process.waitFor(STOP_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("worker 가 {} 초 안에 끝나지 않아서 강제로 종료한다.", STOP_WAIT_SECONDS);
+                process.destroyForcibly();
+            }
+        }
+        processes.clear();
+        broker.close();
+        broker = null;
+        arguments = null;
+    }
+
+    private void start() throws IOException {
+        if (broker != null) {
+            relaunchDeadWorkers();
+            return;
+        }
+        Assert.isTrue(workers > 0, "batch.remote.workers 는 0 보다 커야 한다.");
+        arguments = workerArguments.create();
+        broker = new LocalMessageBroker(brokerPort);
+        Files.createDirectories(logDirectory.toPath());
+        for (int i = 0; i < workers; i++) {
+            processes.add(launch(i));
+        }
+        log.info("worker JVM {} 개를 실행했다. log: {}", workers, logDirectory.getAbsolutePath());
+    }
+
+    private void relaunchDeadWorkers() throws IOException {
+        for (int i = 0; i < processes.size(); i++) {
+            Process process = processes.get(i);
+            if (!process.isAlive()) {
+                log.warn("worker {} 가 종료되어 있어서 다시 실행한다. exit code: {}", i, process.exitValue());
+                processes.set(i, launch(i));
+            }
+        }
+    }
+
+    private Process launch(final int index) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (StringUtils.hasText(workerHeap)) {
+            command.add("-Xmx" + workerHeap);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        command.add("--batch.remote.worker=true");
+        command.add("--batch.remote.broker-port=" + broker.getPort());
+        command.addAll(arguments);
+
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File(logDirectory, "remote-worker-" + index + ".log")))
+                .start();
+    }
+
+    @FunctionalInterface
+    public interface WorkerArguments {
+
+        List<String> create();
+    }
+}
@@ -0,0 +1,111 @@
+package spring.batch.support;
+
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * remote partitioning 의 manager / worker 설정.
+ *
+ * manager (기본)
+ * - batch.remote.workers : 실행할 worker JVM 수 (기본 2)
+ * - batch.remote.broker-port : LocalMessageBroker port (기본 0 -> 비어있는 port)
+ * - batch.remote.timeout-millis : 모든 partition 을 기다리는 시간 (기본 1 시간)
+ * - batch.remote.worker-heap : worker 의 -Xmx (ex. 512m)
+ * - batch.remote.log-dir : worker 출력을 남길 directory (기본 java.io.tmpdir)
+ * - batch.remote.worker-args : worker 에 더 넘길 인자. 공백으로 구분한다. (ex. --logging.level.spring.batch.part3=warn)
+ * worker 는 manager 의 DB 에 같이 붙어야 해서 in-memory DB 로는 실행할 수 없다.
+ * -> --spring.datasource.url='jdbc:h2:file:./build/remote/batch;AUTO_SERVER=TRUE' 처럼 다른 process 가 붙을 수 있는 DB 를 사용한다.
+ *
+ * worker (batch.remote.worker=true, RemotePartitioning 이 붙여서 실행한다.)
+ * - RemotePartitionWorker 를 실행하고, 끝나면 JVM 을 종료한다.
+ */
+@Configuration
+public class RemotePartitioningConfiguration {
+
+    private static final String[] DATASOURCE_KEYS = {
+            "spring.datasource.url",
+            "spring.datasource.username",
+            "spring.datasource.password",
+            "spring.datasource.driver-class-name",
+            "spring.datasource.hikari.jdbc-url",
+            "spring.datasource.hikari.username",
+            "spring.datasource.hikari.password",
+            "spring.datasource.hikari.driver-class-name"
+    };
+
+    @Bean
+    public RemotePartitioning remotePartitioning(JobExplorer jobExplorer,
+                                                 Environment environment,
+                                                 @Value("${batch.remote.workers:2}") int workers,
+                                                 @Value("${batch.remote.broker-port:0}") int brokerPort,
+                                                 @Value("${batch.remote.timeout-millis:3600000}") long timeoutMillis,
+                                                 @Value("${batch.remote.worker-main-class:spring.batch.ExampleApplication}") String mainClass,
+                                                 @Value("${batch.remote.worker-heap:}") String workerHeap,
+                                                 @Value("${batch.remote.log-dir:${java.io.tmpdir}}") String logDir,
+                                                 @Value("${batch.remote.worker-args:}") String workerArgs) {
+        return new RemotePartitioning(jobExplorer, workers, brokerPort, timeoutMillis, mainClass, workerHeap,
+                new File(logDir), () -> workerArguments(environment, workerArgs));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "batch.remote.worker", havingValue = "true")
+    public ApplicationRunner remotePartitionWorkerRunner(ApplicationContext applicationContext,
+                                                         JobExplorer jobExplorer,
+                                                         JobRepository jobRepository,
+                                                         @Value("${batch.remote.broker-port}") int brokerPort,
+                                                         @Value("${batch.remote.progress-millis:1000}") long progressMillis) {
+        return args -> {
+            try (LocalMessageBrokerClient client = new LocalMessageBrokerClient(brokerPort)) {
+                new RemotePartitionWorker(client, jobExplorer, jobRepository,
+                        stepName -> applicationContext.getBean(stepName, Step.class), progressMillis).run();
+            }
+            System.exit(SpringApplication.exit(applicationContext));
+        };
+    }
+
+    /**
+     * worker 가 manager 와 같은 DB 를 보게 하고, DB 를 초기화하지 않게 한다.
+     * DB 주소는 connection 의 metadata 가 아니라 설정값을 그대로 넘긴다. -> metadata 의 URL 에는 ;AUTO_SERVER=TRUE 같은 옵션이 빠진다.
+     */
+    List<String> workerArguments(Environment environment, String workerArgs) {
+        String url = environment.getProperty("spring.datasource.url",
+                environment.getProperty("spring.datasource.hikari.jdbc-url"));
+        if (url == null || url.contains(":mem:")) {
+            throw new IllegalStateException("worker JVM 은 in-memory DB 에 붙을 수 없다. " +
+                    "spring.datasource.url 을 jdbc:h2:file:...;AUTO_SERVER=TRUE 같은 공유 가능한 DB 로 지정해야 한다: " + url);
+        }
+
+        List<String> arguments = new ArrayList<>();
+        for (String key : DATASOURCE_KEYS) {
+            String value = environment.getProperty(key);
+            if (value != null) {
+                arguments.add("--" + key + "=" + value);
+            }
+        }
+        if (environment.getActiveProfiles().length > 0) {
+            arguments.add("--spring.profiles.active=" + String.join(",", environment.getActiveProfiles()));
+        }
+        arguments.add("--spring.datasource.initialization-mode=never");
+        arguments.add("--spring.batch.initialize-schema=never");
+        arguments.add("--spring.jpa.hibernate.ddl-auto=none");
+        arguments.add("--spring.batch.job.enabled=false");
+        arguments.add("--spring.main.web-application-type=none");
+        arguments.addAll(Arrays.asList(StringUtils.tokenizeToStringArray(workerArgs, " ")));
+        return arguments;
+    }
+}
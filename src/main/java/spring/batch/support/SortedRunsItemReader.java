@@ -0,0 +1,163 @@
+package spring.batch.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * ExternalSortTasklet 이 만든 정렬된 run 파일들을 k-way merge 해서 정렬된 순서로 읽는다.
+ *
+ * run 마다 다음 item 하나씩만 PriorityQueue 에 올려두기 때문에 memory 는 run 수 x bufferSize 정도만 사용한다.
+ * 값이 같으면 앞 run 의 item 을 먼저 준다. -> run 은 입력 순서대로 만들어지므로 전체 정렬이 stable 하다.
+ *
+ * run 파일 목록은 beforeStep 에서 job execution context 의 {name}.runs 에서 꺼낸다.
+ * -> step 의 reader 로 등록하면 StepExecutionListener 로도 같이 등록된다. (proxy 가 아니어야 한다.)
+ * 재시작하면 AbstractItemCountingItemStreamItemReader 가 읽은 수 만큼 건너뛴다.
+ * step 이 COMPLETED 로 끝나면 run 파일을 지운다.
+ */
+@Slf4j
+public class SortedRunsItemReader<T> extends AbstractItemCountingItemStreamItemReader<T> implements StepExecutionListener {
+
+    private final LineMapper<T> lineMapper;
+    private final Comparator<? super T> comparator;
+
+    private String sortName = "externalSort";
+    private int bufferSize = 64 * 1024;
+
+    private List<File> runFiles = Collections.emptyList();
+    private final List<BufferedReader> readers = new ArrayList<>();
+    private PriorityQueue<Head<T>> heads;
+    private int lineNumber;
+
+    public SortedRunsItemReader(final LineMapper<T> lineMapper, final Comparator<? super T> comparator) {
+        this.lineMapper = lineMapper;
+        this.comparator = comparator;
+        setName("sortedRunsItemReader");
+    }
+
+    /**
+     * ExternalSortTasklet 의 name 과 같아야 한다.
+     */
+    public void setSortName(final String sortName) {
+        this.sortName = sortName;
+    }
+
+    /**
+     * run 파일 하나를 읽을 때 사용할 buffer 크기 (char)
+     */
+    public void setBufferSize(final int bufferSize) {
+        Assert.isTrue(bufferSize > 0, "bufferSize 는 0 보다 커야 한다.");
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * job execution context 없이 run 파일을 직접 지정한다. (test 용)
+     */
+    public void setRunFiles(final List<File> runFiles) {
+        this.runFiles = runFiles;
+    }
+
+    @Override
+    public void beforeStep(final StepExecution stepExecution) {
+        String runs = stepExecution.getJobExecution().getExecutionContext()
+                .getString(ExternalSortTasklet.runsKey(sortName), "");
+        runFiles = StringUtils.hasText(runs)
+                ? Collections.unmodifiableList(Arrays.stream(runs.split("\n")).map(File::new).collect(Collectors.toList()))
+                : Collections.emptyList();
+    }
+
+    @Override
+    public ExitStatus afterStep(final StepExecution stepExecution) {
+        if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+            for (File runFile : runFiles) {
+                if (!runFile.delete() && runFile.exists()) {
+                    log.warn("run 파일을 지우지 못했다: {}", runFile);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        Assert.notNull(lineMapper, "lineMapper 는 필수값 이다.");
+        Assert.notNull(comparator, "comparator 는 필수값 이다.");
+        heads = new PriorityQueue<>(Math.max(1, runFiles.size()), (left, right) -> {
+            int result = comparator.compare(left.item, right.item);
+            return result != 0 ? result : Integer.compare(left.run, right.run);
+        });
+        lineNumber = 0;
+        for (int run = 0; run < runFiles.size(); run++) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    Files.newInputStream(runFiles.get(run).toPath()), StandardCharsets.UTF_8), bufferSize);
+            readers.add(reader);
+            advance(run);
+        }
+    }
+
+    @Override
+    protected T doRead() throws Exception {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            return null;
+        }
+        advance(head.run);
+        return head.item;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        IOException error = null;
+        for (BufferedReader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        readers.clear();
+        heads = null;
+        if (error != null) {
+            throw new ItemStreamException("run 파일을 닫지 못했다.", error);
+        }
+    }
+
+    private void advance(final int run) throws Exception {
+        String line = readers.get(run).readLine();
+        if (line != null) {
+            heads.add(new Head<>(lineMapper.mapLine(line, ++lineNumber), run));
+        }
+    }
+
+    private static class Head<T> {
+
+        private final T item;
+        private final int run;
+
+        Head(final T item, final int run) {
+            this.item = item;
+            this.run = run;
+        }
+    }
+}
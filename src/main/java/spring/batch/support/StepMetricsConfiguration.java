@@ -0,0 +1,75 @@
+package spring.batch.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.BatchConfigurer;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * 모든 configuration 이 주입받는 StepBuilderFactory 를 MeteredStepBuilderFactory 로 바꾼다.
+ * batch.checkpoint.every-chunks / every-millis 를 설정하면 step 진행 상황 저장도 CoalescingJobRepository 로 줄인다. (기본은 chunk 마다 저장)
+ * metric 은 spring batch 의 기본 metric 과 같이 Metrics.globalRegistry 에 등록된다.
+ * -> actuator 를 추가하면 global registry 에 등록된 registry(prometheus 등) 로 그대로 나간다.
+ */
+@Configuration
+public class StepMetricsConfiguration {
+
+    @Bean
+    @Primary
+    public StepBuilderFactory meteredStepBuilderFactory(BatchConfigurer batchConfigurer,
+                                                        @Value("${batch.checkpoint.every-chunks:0}") int everyChunks,
+                                                        @Value("${batch.checkpoint.every-millis:0}") long everyMillis) throws Exception {
+        MeterRegistry meterRegistry = Metrics.globalRegistry;
+        JobRepository jobRepository = timedJobRepository(batchConfigurer.getJobRepository(), meterRegistry);
+        return new MeteredStepBuilderFactory(
+                CoalescingJobRepository.wrap(jobRepository, everyChunks, everyMillis),
+                batchConfigurer.getTransactionManager(),
+                new StepMetricsListener(meterRegistry));
+    }
+
+    /**
+     * step 이 chunk 마다 호출하는 update / updateExecutionContext 시간을 batch.job.repository.update 로 기록한다.
+     */
+    private JobRepository timedJobRepository(JobRepository jobRepository, MeterRegistry meterRegistry) {
+        ProxyFactory proxyFactory = new ProxyFactory(jobRepository);
+        proxyFactory.addInterface(JobRepository.class);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            String method = invocation.getMethod().getName();
+            Object[] arguments = invocation.getArguments();
+            if (!method.startsWith("update") || arguments.length != 1) {
+                return invocation.proceed();
+            }
+
+            String job = "";
+            String step = "";
+            if (arguments[0] instanceof StepExecution) {
+                StepExecution stepExecution = (StepExecution) arguments[0];
+                job = stepExecution.getJobExecution().getJobInstance().getJobName();
+                step = stepExecution.getStepName();
+            } else if (arguments[0] instanceof JobExecution) {
+                job = ((JobExecution) arguments[0]).getJobInstance().getJobName();
+            }
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return invocation.proceed();
+            } finally {
+                sample.stop(Timer.builder("batch.job.repository.update")
+                        .tags("job", job, "step", step, "method", method)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+        });
+        return (JobRepository) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,193 @@
+package spring.batch.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * chunk 하나를 read / process / write / commit 단계로 나눠서 시간을 잰다.
+ *
+ * - batch.chunk.read, batch.chunk.process, batch.chunk.write : chunk 안에서 각 단계에 걸린 시간의 합
+ * - batch.chunk.commit : 마지막 write 가 끝난 뒤 afterChunk 까지. stream update, job repository update, commit 이 포함된다.
+ * - batch.chunk.items : write 된 item 수. counter 의 rate 가 items/sec 이다.
+ * - batch.chunk.rollback : chunk 가 rollback 된 횟수
+ * - batch.step.items.per.second : step 이 끝날 때 step 전체의 처리량
+ * - batch.step.skip : step 이 끝날 때 read / process / write skip 수
+ * 모든 metric 은 job, step tag 를 가진다.
+ *
+ * 같은 step 이 partition / multi-thread 로 동시에 실행될 수 있어서 chunk 별 시간은 ThreadLocal 에 모은다.
+ * (chunk 하나의 read ~ commit 은 항상 같은 thread 에서 실행된다.)
+ */
+public class StepMetricsListener implements StepExecutionListener, ChunkListener,
+        ItemReadListener<Object>, ItemProcessListener<Object, Object>, ItemWriteListener<Object> {
+
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadLocal<ChunkTimings> timings = ThreadLocal.withInitial(ChunkTimings::new);
+
+    public StepMetricsListener(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeStep(final StepExecution stepExecution) {
+    }
+
+    @Override
+    public ExitStatus afterStep(final StepExecution stepExecution) {
+        String job = stepExecution.getJobExecution().getJobInstance().getJobName();
+        String step = stepExecution.getStepName();
+
+        Date startTime = stepExecution.getStartTime();
+        long elapsedMillis = startTime == null ? 0 : System.currentTimeMillis() - startTime.getTime();
+        if (elapsedMillis > 0) {
+            DistributionSummary.builder("batch.step.items.per.second")
+                    .tags("job", job, "step", step)
+                    .register(meterRegistry)
+                    .record(stepExecution.getWriteCount() * 1000.0 / elapsedMillis);
+        }
+        skipCounter(job, step, "read").increment(stepExecution.getReadSkipCount());
+        skipCounter(job, step, "process").increment(stepExecution.getProcessSkipCount());
+        skipCounter(job, step, "write").increment(stepExecution.getWriteSkipCount());
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(final ChunkContext context) {
+        timings.get().reset();
+    }
+
+    @Override
+    public void afterChunk(final ChunkContext context) {
+        ChunkTimings chunkTimings = timings.get();
+        if (chunkTimings.chunkStart == 0) {
+            return;
+        }
+        StepContext stepContext = context.getStepContext();
+        String job = stepContext.getJobName();
+        String step = stepContext.getStepName();
+
+        if (chunkTimings.reads > 0) {
+            timer("batch.chunk.read", job, step).record(chunkTimings.read, TimeUnit.NANOSECONDS);
+        }
+        if (chunkTimings.processes > 0) {
+            timer("batch.chunk.process", job, step).record(chunkTimings.process, TimeUnit.NANOSECONDS);
+        }
+        if (chunkTimings.writes > 0) {
+            timer("batch.chunk.write", job, step).record(chunkTimings.write, TimeUnit.NANOSECONDS);
+            Counter.builder("batch.chunk.items").tags("job", job, "step", step).register(meterRegistry)
+                    .increment(chunkTimings.writes);
+        }
+        long commitFrom = chunkTimings.writeEnd > 0 ? chunkTimings.writeEnd : chunkTimings.chunkStart;
+        timer("batch.chunk.commit", job, step).record(System.nanoTime() - commitFrom, TimeUnit.NANOSECONDS);
+        timings.remove();
+    }
+
+    @Override
+    public void afterChunkError(final ChunkContext context) {
+        StepContext stepContext = context.getStepContext();
+        Counter.builder("batch.chunk.rollback")
+                .tags("job", stepContext.getJobName(), "step", stepContext.getStepName())
+                .register(meterRegistry)
+                .increment();
+        timings.remove();
+    }
+
+    @Override
+    public void beforeRead() {
+        timings.get().phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterRead(final Object item) {
+        ChunkTimings chunkTimings = timings.get();
+        chunkTimings.read += System.nanoTime() - chunkTimings.phaseStart;
+        chunkTimings.reads++;
+    }
+
+    @Override
+    public void onReadError(final Exception ex) {
+    }
+
+    @Override
+    public void beforeProcess(final Object item) {
+        timings.get().phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterProcess(final Object item, final Object result) {
+        ChunkTimings chunkTimings = timings.get();
+        chunkTimings.process += System.nanoTime() - chunkTimings.phaseStart;
+        chunkTimings.processes++;
+    }
+
+    @Override
+    public void onProcessError(final Object item, final Exception e) {
+    }
+
+    @Override
+    public void beforeWrite(final List<?> items) {
+        timings.get().phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(final List<?> items) {
+        ChunkTimings chunkTimings = timings.get();
+        chunkTimings.writeEnd = System.nanoTime();
+        chunkTimings.write += chunkTimings.writeEnd - chunkTimings.phaseStart;
+        chunkTimings.writes += items.size();
+    }
+
+    @Override
+    public void onWriteError(final Exception exception, final List<?> items) {
+    }
+
+    private Timer timer(final String name, final String job, final String step) {
+        return Timer.builder(name)
+                .tags("job", job, "step", step)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(meterRegistry);
+    }
+
+    private Counter skipCounter(final String job, final String step, final String phase) {
+        return Counter.builder("batch.step.skip")
+                .tags("job", job, "step", step, "phase", phase)
+                .register(meterRegistry);
+    }
+
+    private static class ChunkTimings {
+
+        private long chunkStart;
+        private long phaseStart;
+        private long read;
+        private long process;
+        private long write;
+        private long writeEnd;
+        private int reads;
+        private int processes;
+        private int writes;
+
+        void reset() {
+            chunkStart = System.nanoTime();
+            read = process = write = writeEnd = 0;
+            reads = processes = writes = 0;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- IDENTITY (auto_increment) 로 만들어진 기존 person 테이블에서 upgrade 하는 경우
+-- ddl-auto: update 가 만든 person_seq 테이블은 1 부터 시작해서 이미 있는 id 와 겹친다.
+-- 시작할 때마다 max(id) + 50 (allocationSize) 보다 작으면 올려서 다음 id 가 max(id) + 1 부터 할당되게 한다.
+update person_seq
+set next_val = greatest(next_val, (select coalesce(max(id), 0) + 50 from person));
@@ -5,12 +5,24 @@
 --     address varchar(255)
 -- );
 
-insert into person(name, age, address)
-values('홍길동','32','인천');
-insert into person(name, age, address)
-values('김철수','30','서울');
-insert into person(name, age, address)
-values('이영희','25','강원');
+insert into person(id, name, age, address)
+values(1, '홍길동','32','인천');
+insert into person(id, name, age, address)
+values(2, '김철수','30','서울');
+insert into person(id, name, age, address)
+values(3, '이영희','25','강원');
 
+-- JPA 로 persist 하는 id 가 위의 id 뒤에서 시작하게 한다. (max(id) + allocationSize, PersonIdSequence 참고)
+alter sequence person_seq restart with 53;
 
+-- 주소 -> 지역 코드 참조 데이터 (itemProcessorJob 에서 사용)
+create table if not exists region (
+    address varchar(255) primary key,
+    region_code varchar(10)
+);
 
+insert into region(address, region_code) values('서울', '11');
+insert into region(address, region_code) values('부산', '26');
+insert into region(address, region_code) values('대구', '27');
+insert into region(address, region_code) values('인천', '28');
+insert into region(address, region_code) values('강원', '42');
@@ -0,0 +1,12 @@
+-- 주소 -> 지역 코드 참조 데이터 (itemProcessorJob 에서 사용, H2 는 person.sql)
+-- 시작할 때마다 실행되어서 이미 있는 row 는 건너뛴다.
+create table if not exists region (
+    address varchar(255) primary key,
+    region_code varchar(10)
+);
+
+insert ignore into region(address, region_code) values('서울', '11');
+insert ignore into region(address, region_code) values('부산', '26');
+insert ignore into region(address, region_code) values('대구', '27');
+insert ignore into region(address, region_code) values('인천', '28');
+insert ignore into region(address, region_code) values('강원', '42');
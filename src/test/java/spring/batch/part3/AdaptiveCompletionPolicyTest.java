@@ -0,0 +1,146 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.repeat.RepeatContext;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveCompletionPolicyTest {
+
+    private static final String STEP = "chunkBaseStep";
+
+    private final JobExplorer jobExplorer = mock(JobExplorer.class);
+
+    @Test
+    void initialSizeIsClamped() {
+        assertThat(new AdaptiveCompletionPolicy(jobExplorer, 5000, 1, 1000, 1000).getChunkSize()).isEqualTo(1000);
+        assertThat(new AdaptiveCompletionPolicy(jobExplorer, 0, 3, 1000, 1000).getChunkSize()).isEqualTo(3);
+    }
+
+    @Test
+    void completesAfterChunkSizeItems() {
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 3, 1, 1000, 1000);
+        RepeatContext context = policy.start(null);
+        for (int i = 0; i < 3; i++) {
+            assertThat(policy.isComplete(context)).isFalse();
+            policy.update(context);
+        }
+        assertThat(policy.isComplete(context)).isTrue();
+    }
+
+    @Test
+    void fastChunkGrowsUpToMax() {
+        StepExecution stepExecution = stepExecution(1L);
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 10, 1, 20, 60_000);
+
+        chunk(policy, stepExecution, 0);
+        assertThat(policy.getChunkSize()).isEqualTo(15);
+        chunk(policy, stepExecution, 0);
+        assertThat(policy.getChunkSize()).isEqualTo(20); // 23 -> maxChunkSize
+    }
+
+    @Test
+    void slowChunkShrinksDownToMin() {
+        StepExecution stepExecution = stepExecution(1L);
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 10, 4, 1000, 1);
+
+        chunk(policy, stepExecution, 20);
+        assertThat(policy.getChunkSize()).isEqualTo(5);
+        chunk(policy, stepExecution, 20);
+        assertThat(policy.getChunkSize()).isEqualTo(4); // 2 -> minChunkSize
+    }
+
+    @Test
+    void nextSizeIsSavedInTheSameChunk() {
+        StepExecution stepExecution = stepExecution(1L);
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 10, 1, 1000, 60_000);
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        policy.update(stepExecution.getExecutionContext()); // step 시작
+        assertThat(stepExecution.getExecutionContext().getInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY)).isEqualTo(10);
+
+        policy.beforeChunk(chunkContext);
+        policy.update(stepExecution.getExecutionContext()); // commit 직전
+        assertThat(stepExecution.getExecutionContext().getInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY)).isEqualTo(15);
+        assertThat(policy.getChunkSize()).isEqualTo(10); // commit 전에는 바꾸지 않는다.
+
+        policy.afterChunk(chunkContext);
+        assertThat(policy.getChunkSize()).isEqualTo(15);
+    }
+
+    @Test
+    void rolledBackChunkHalvesSize() {
+        StepExecution stepExecution = stepExecution(1L);
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 10, 1, 1000, 60_000);
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        policy.beforeChunk(chunkContext);
+        policy.update(stepExecution.getExecutionContext());
+        policy.afterChunkError(chunkContext);
+        assertThat(policy.getChunkSize()).isEqualTo(5);
+
+        policy.update(stepExecution.getExecutionContext()); // 다음 chunk 전에 저장되는 값
+        assertThat(stepExecution.getExecutionContext().getInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY)).isEqualTo(5);
+    }
+
+    @Test
+    void restartUsesSavedSize() {
+        StepExecution stepExecution = stepExecution(1L);
+        stepExecution.getExecutionContext().putInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY, 300);
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 10, 1, 200, 1000);
+
+        policy.beforeStep(stepExecution);
+
+        assertThat(policy.getChunkSize()).isEqualTo(200); // 저장된 값도 min ~ max 로 자른다.
+    }
+
+    @Test
+    void newInstanceStartsFromPreviousInstance() {
+        StepExecution previous = stepExecution(1L);
+        previous.getExecutionContext().putInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY, 120);
+        StepExecution stepExecution = stepExecution(2L);
+        JobInstance previousInstance = previous.getJobExecution().getJobInstance();
+        when(jobExplorer.getJobInstances(eq("chunkProcessingJob"), anyInt(), anyInt()))
+                .thenReturn(Arrays.asList(stepExecution.getJobExecution().getJobInstance(), previousInstance));
+        when(jobExplorer.getJobExecutions(previousInstance))
+                .thenReturn(Collections.singletonList(previous.getJobExecution()));
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(jobExplorer, 10, 1, 1000, 1000);
+
+        policy.beforeStep(stepExecution);
+
+        assertThat(policy.getChunkSize()).isEqualTo(120);
+    }
+
+    private void chunk(AdaptiveCompletionPolicy policy, StepExecution stepExecution, long sleepMillis) {
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+        policy.beforeChunk(chunkContext);
+        if (sleepMillis > 0) {
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        policy.update(stepExecution.getExecutionContext());
+        policy.afterChunk(chunkContext);
+    }
+
+    private StepExecution stepExecution(long instanceId) {
+        JobExecution jobExecution = new JobExecution(new JobInstance(instanceId, "chunkProcessingJob"), instanceId, new JobParameters(), null);
+        return jobExecution.createStepExecution(STEP);
+    }
+}
@@ -0,0 +1,67 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomItemReaderTest {
+
+    @Test
+    void restartFromSavedPosition() throws Exception {
+        CustomItemReader<String> reader = new CustomItemReader<>(Arrays.asList("a", "b", "c"));
+        ExecutionContext executionContext = new ExecutionContext();
+        reader.open(executionContext);
+        assertThat(reader.read()).isEqualTo("a");
+        reader.update(executionContext);
+
+        CustomItemReader<String> restarted = new CustomItemReader<>(Arrays.asList("a", "b", "c"));
+        restarted.open(executionContext);
+        assertThat(restarted.read()).isEqualTo("b");
+        assertThat(restarted.read()).isEqualTo("c");
+        assertThat(restarted.read()).isNull();
+    }
+
+    @Test
+    void concurrentReadReturnsEachItemOnce() throws Exception {
+        CustomItemReader<Integer> reader = new CustomItemReader<>(
+                IntStream.range(0, 10_000).boxed().collect(Collectors.toList()));
+        reader.open(new ExecutionContext());
+
+        Set<Integer> read = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                Integer item;
+                while ((item = reader.read()) != null) {
+                    if (!read.add(item)) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        for (Future<?> future : futures) {
+            future.get(); // read 중 예외가 있으면 여기서 실패한다.
+        }
+        assertThat(duplicates).hasValue(0);
+        assertThat(read).hasSize(10_000);
+    }
+}
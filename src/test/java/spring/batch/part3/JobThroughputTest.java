@@ -0,0 +1,165 @@
+package spring.batch.part3;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 데이터 크기를 늘려가면서 job 을 처음부터 끝까지 실행하고 처리량을 기록한다.
+ *
+ * 크기마다 PersonDataGenerator 로 person 테이블과 csv 를 다시 만들고
+ * itemReaderJob, chunkProcessingJob, partitionedCsvFileJob 을 JobLauncherTestUtils 로 실행한다.
+ * job 마다 wall time, items/sec, peak heap, GC 횟수 / 시간을 재서
+ * throughput.reportDir 아래 throughput-{version}.csv 로 남긴다. -> 버전별 파일을 나란히 비교한다.
+ *
+ * 오래 걸려서 기본 test 에서는 빠진다. (@Tag("throughput"))
+ * -> ./gradlew throughputTest -Pthroughput.sizes=10000,100000,1000000
+ */
+@Slf4j
+@Tag("throughput")
+@SpringBootTest(properties = {
+        "spring.batch.job.enabled=false",
+        "logging.level.spring.batch.part3=warn"
+})
+class JobThroughputTest {
+
+    private static final String HEADER = "version,job,rows,wallMillis,items,itemsPerSec,peakHeapBytes,gcCount,gcMillis";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private JobLauncher jobLauncher;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void throughput() throws Exception {
+        String version = System.getProperty("project.version", "dev");
+        Path reportDir = Paths.get(System.getProperty("throughput.reportDir", "build/reports/throughput"));
+        Files.createDirectories(reportDir);
+
+        List<String> rows = new ArrayList<>();
+        for (int size : sizes()) {
+            PersonDataGenerator.load(dataSource, size, true);
+            Path csv = PersonDataGenerator.writeCsv(Files.createTempFile("person-" + size + "-", ".csv"), size);
+            try {
+                rows.add(run(version, "itemReaderJob", size,
+                        builder -> builder.addString("fullScan", "true")));
+                rows.add(run(version, "chunkProcessingJob", size,
+                        builder -> builder.addString("itemCount", String.valueOf(size))));
+                rows.add(run(version, "partitionedCsvFileJob", size,
+                        builder -> builder.addString("inputFile", csv.toString())));
+            } finally {
+                Files.deleteIfExists(csv);
+            }
+        }
+
+        Path report = reportDir.resolve("throughput-" + version + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            for (String row : rows) {
+                writer.newLine();
+                writer.write(row);
+            }
+        }
+        log.warn("throughput report: {}\n{}\n{}", report.toAbsolutePath(), HEADER, String.join("\n", rows));
+    }
+
+    private String run(String version, String jobName, int size,
+                       Function<JobParametersBuilder, JobParametersBuilder> parameters) throws Exception {
+        JobLauncherTestUtils jobLauncherTestUtils = new JobLauncherTestUtils();
+        jobLauncherTestUtils.setJob(applicationContext.getBean(jobName, Job.class));
+        jobLauncherTestUtils.setJobLauncher(jobLauncher);
+        jobLauncherTestUtils.setJobRepository(jobRepository);
+        JobParameters jobParameters = parameters
+                .apply(new JobParametersBuilder(jobLauncherTestUtils.getUniqueJobParameters()))
+                .toJobParameters();
+
+        // 이전 job 의 garbage 가 측정에 섞이지 않게 한다.
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long start = System.nanoTime();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        // pool 별 peak 는 서로 다른 시점일 수 있어서 합은 실제 peak 의 상한이다.
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        assertThat(jobExecution.getStatus()).as(jobName).isEqualTo(BatchStatus.COMPLETED);
+
+        long items = items(jobExecution);
+        return String.join(",", version, jobName, String.valueOf(size), String.valueOf(wallMillis),
+                String.valueOf(items), String.valueOf(wallMillis == 0 ? 0 : items * 1000 / wallMillis),
+                String.valueOf(peakHeap), String.valueOf(gcCount() - gcCount), String.valueOf(gcMillis() - gcMillis));
+    }
+
+    /**
+     * 모든 step 의 write 수의 합.
+     * partition 이 있으면 manager step 에 worker 의 합이 들어가 있어서 worker step ("step:partitionN") 만 센다.
+     */
+    private long items(JobExecution jobExecution) {
+        boolean partitioned = jobExecution.getStepExecutions().stream()
+                .anyMatch(stepExecution -> stepExecution.getStepName().contains(":"));
+        return jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> !partitioned || stepExecution.getStepName().contains(":"))
+                .mapToLong(StepExecution::getWriteCount)
+                .sum();
+    }
+
+    private static int[] sizes() {
+        return Arrays.stream(System.getProperty("throughput.sizes", "10000,100000,1000000").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
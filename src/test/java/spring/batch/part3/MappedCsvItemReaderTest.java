@@ -0,0 +1,101 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedCsvItemReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readLikeFlatFileItemReader() throws Exception {
+        File file = writeCsv("id,이름,나이,거주지\n1,홍길동,20,서울\r\n2,김철수,30,부산\n\n3,이영희,40,대구");
+        MappedCsvItemReader<Person> reader = createReader(file, 0, -1);
+        reader.open(new ExecutionContext());
+
+        List<Person> persons = readAll(reader);
+
+        assertThat(persons).extracting(Person::getId).containsExactly(1, 2, 3);
+        assertThat(persons).extracting(Person::getName).containsExactly("홍길동", "김철수", "이영희");
+        assertThat(persons).extracting(Person::getAddress).containsExactly("서울", "부산", "대구");
+    }
+
+    @Test
+    void restartFromSavedByteOffset() throws Exception {
+        File file = writeCsv("id,이름,나이,거주지\n1,홍길동,20,서울\n2,김철수,30,부산\n3,이영희,40,대구\n");
+        MappedCsvItemReader<Person> reader = createReader(file, 0, -1);
+        ExecutionContext executionContext = new ExecutionContext();
+        reader.open(executionContext);
+        reader.read();
+        reader.update(executionContext);
+        reader.close();
+
+        MappedCsvItemReader<Person> restarted = createReader(file, 0, -1);
+        restarted.open(executionContext);
+
+        assertThat(readAll(restarted)).extracting(Person::getId).containsExactly(2, 3);
+    }
+
+    @Test
+    void partitionsReadEveryLineExactlyOnce() throws Exception {
+        StringBuilder csv = new StringBuilder("id,이름,나이,거주지");
+        for (int i = 1; i <= 1000; i++) {
+            csv.append('\n').append(i).append(",name").append(i).append(",20,서울");
+        }
+        File file = writeCsv(csv.toString());
+
+        Map<String, ExecutionContext> partitions = new MappedCsvPartitioner(new FileSystemResource(file)).partition(7);
+
+        List<Integer> ids = new ArrayList<>();
+        for (ExecutionContext partition : partitions.values()) {
+            MappedCsvItemReader<Person> reader = createReader(file,
+                    partition.getLong(MappedCsvPartitioner.START_OFFSET), partition.getLong(MappedCsvPartitioner.END_OFFSET));
+            reader.setWindowSize(64); // window 를 다시 mapping 하는 경우도 같이 확인한다.
+            reader.open(new ExecutionContext());
+            readAll(reader).forEach(person -> ids.add(person.getId()));
+        }
+
+        assertThat(partitions).hasSize(7);
+        assertThat(ids).hasSize(1000).doesNotHaveDuplicates();
+    }
+
+    private MappedCsvItemReader<Person> createReader(File file, long startOffset, long endOffset) {
+        MappedCsvItemReader<Person> reader = new MappedCsvItemReader<>();
+        reader.setResource(new FileSystemResource(file));
+        reader.setLinesToSkip(1);
+        reader.setStartOffset(startOffset);
+        reader.setEndOffset(endOffset);
+        reader.setFieldsMapper(fields -> new Person(
+                fields.readInt(0), fields.readString(1), fields.readString(2), fields.readString(3)));
+        return reader;
+    }
+
+    private List<Person> readAll(MappedCsvItemReader<Person> reader) throws Exception {
+        List<Person> persons = new ArrayList<>();
+        Person person;
+        while ((person = reader.read()) != null) {
+            persons.add(person);
+        }
+        reader.close();
+        return persons;
+    }
+
+    private File writeCsv(String content) throws Exception {
+        Path path = tempDir.resolve("person.csv");
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path.toFile();
+    }
+}
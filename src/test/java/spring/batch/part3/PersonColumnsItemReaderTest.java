@@ -0,0 +1,109 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonColumnsItemReaderTest {
+
+    private EmbeddedDatabase dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table person (" +
+                "id bigint primary key, name varchar(255), age varchar(255), address varchar(255))");
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.update("insert into person(id, name, age, address) values(?, ?, ?, ?)",
+                    i, "name" + i, age(i), i % 2 == 0 ? "서울" : "부산");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    void fillColumnsInBlocksWithDictionaryEncodedAddress() throws Exception {
+        PersonColumnsItemReader reader = reader();
+        reader.open(new ExecutionContext());
+
+        PersonColumns first = reader.read();
+        PersonColumns second = reader.read();
+        reader.close();
+
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(first.id(0)).isEqualTo(1);
+        assertThat(first.age(0)).isEqualTo(21);
+        assertThat(first.address(1)).isEqualTo("서울");
+        assertThat(second.age(0)).isEqualTo(PersonColumns.NO_AGE);
+        assertThat(second.rawAge(0)).isEqualTo("test age");
+        assertThat(second.toPerson(0).getAge()).isEqualTo("test age");
+        assertThat(second.age(1)).isEqualTo(PersonColumns.NO_AGE);
+        assertThat(second.ageText(1)).isEqualTo("032"); // 32 로 바꾸지 않는다.
+        assertThat(reader.getDictionary().size()).isEqualTo(2);
+    }
+
+    @Test
+    void restartSkipsRowsOfCommittedBlocks() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        PersonColumnsItemReader reader = reader();
+        reader.open(executionContext);
+        reader.read();
+        reader.update(executionContext);
+        reader.close();
+
+        PersonColumnsItemReader restarted = reader();
+        restarted.open(executionContext);
+        PersonColumns columns = restarted.read();
+        PersonColumns last = restarted.read();
+
+        assertThat(columns.id(0)).isEqualTo(3);
+        assertThat(last.size()).isEqualTo(1);
+        assertThat(last.id(0)).isEqualTo(5);
+        assertThat(restarted.read()).isNull();
+        restarted.close();
+    }
+
+    @Test
+    void rewriteKeepsAgeAsStored() throws Exception {
+        PersonJdbcBatchItemWriter writer = new PersonJdbcBatchItemWriter();
+        writer.setDataSource(dataSource);
+        writer.setMode(PersonJdbcBatchItemWriter.Mode.UPSERT);
+        writer.afterPropertiesSet();
+        PersonColumnsItemReader reader = reader();
+        reader.open(new ExecutionContext());
+
+        PersonColumns columns;
+        while ((columns = reader.read()) != null) {
+            writer.writeColumns(columns);
+        }
+        reader.close();
+
+        assertThat(new JdbcTemplate(dataSource).queryForList("select age from person order by id", String.class))
+                .containsExactly("21", "22", "test age", "032", "25");
+    }
+
+    private String age(int id) {
+        if (id == 3) {
+            return "test age";
+        }
+        return id == 4 ? "032" : String.valueOf(20 + id);
+    }
+
+    private PersonColumnsItemReader reader() {
+        PersonColumnsItemReader reader = new PersonColumnsItemReader();
+        reader.setDataSource(dataSource);
+        reader.setSql("select id, name, age, address from person order by id");
+        reader.setBlockSize(2);
+        return reader;
+    }
+}
@@ -0,0 +1,124 @@
+package spring.batch.part3;
+
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * test, benchmark 에서 사용할 synthetic Person 데이터를 만든다. (jmh 의 PersonFixture 도 이 class 를 사용한다.)
+ *
+ * id 가 i 인 row 는 항상 (i, "test name" + i, 20 + i % 50, ADDRESSES[i % 5]) 이다.
+ * -> 같은 rows 로 만든 DB, csv, List<Person> 은 같은 내용을 가진다.
+ *
+ * DB 는 jdbc batch insert 로 넣어서 MySQL 같은 다른 JDBC 대상에도 사용할 수 있다.
+ * H2 는 10M 건도 빨리 넣을 수 있게 system_range 로 한번에 넣는다. (같은 식을 SQL 로 만든다.)
+ * 넣은 뒤에는 JPA 로 persist 하는 id 가 겹치지 않게 person_seq 를 max(id) 뒤로 맞춘다.
+ */
+public final class PersonDataGenerator {
+
+    static final String[] ADDRESSES = {"서울", "부산", "대구", "인천", "강원"};
+
+    private static final String NAME_PREFIX = "test name";
+    private static final int MIN_AGE = 20;
+    private static final int AGE_RANGE = 50;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private PersonDataGenerator() {
+    }
+
+    /**
+     * person 테이블에 1 ~ rows 의 id 를 가진 row 를 넣는다.
+     * truncate 가 true 면 기존 row 를 먼저 모두 지운다. (false 면 id 가 겹치지 않아야 한다.)
+     */
+    public static void load(DataSource dataSource, int rows, boolean truncate) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (truncate) {
+            jdbcTemplate.execute("delete from person");
+        }
+        if (isH2(dataSource)) {
+            jdbcTemplate.update("insert into person(id, name, age, address) " +
+                    "select x, concat('" + NAME_PREFIX + "', x), cast(" + MIN_AGE + " + mod(x, " + AGE_RANGE + ") as varchar), " +
+                    addressSql() + " from system_range(1, ?)", rows);
+        } else {
+            batchInsert(jdbcTemplate, rows);
+        }
+        PersonIdSequence.restartAfterMaxId(dataSource);
+    }
+
+    private static void batchInsert(JdbcTemplate jdbcTemplate, int rows) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= rows; id++) {
+            batch.add(new Object[]{id, name(id), age(id), address(id)});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into person(id, name, age, address) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into person(id, name, age, address) values (?, ?, ?, ?)", batch);
+        }
+    }
+
+    /**
+     * test.csv 와 같은 header 로 load 와 같은 rows 개의 row 를 쓴다.
+     */
+    public static Path writeCsv(Path file, int rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("id,이름,나이,거주지");
+            for (int id = 1; id <= rows; id++) {
+                writer.newLine();
+                writer.write(id + "," + name(id) + "," + age(id) + "," + address(id));
+            }
+        }
+        return file;
+    }
+
+    public static List<Person> persons(int rows) {
+        List<Person> items = new ArrayList<>(rows);
+        for (int id = 1; id <= rows; id++) {
+            items.add(new Person(id, name(id), age(id), address(id)));
+        }
+        return items;
+    }
+
+    static String name(int id) {
+        return NAME_PREFIX + id;
+    }
+
+    static String age(int id) {
+        return String.valueOf(MIN_AGE + id % AGE_RANGE);
+    }
+
+    static String address(int id) {
+        return ADDRESSES[id % ADDRESSES.length];
+    }
+
+    /**
+     * address(id) 와 같은 값을 만드는 SQL. -> case mod(x, 5) when 0 then '서울' ... end
+     */
+    private static String addressSql() {
+        StringBuilder sql = new StringBuilder("case mod(x, ").append(ADDRESSES.length).append(")");
+        for (int i = 0; i < ADDRESSES.length; i++) {
+            sql.append(" when ").append(i).append(" then '").append(ADDRESSES[i]).append("'");
+        }
+        return sql.append(" end").toString();
+    }
+
+    private static boolean isH2(DataSource dataSource) {
+        try {
+            return DatabaseType.fromMetaData(dataSource) == DatabaseType.H2;
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
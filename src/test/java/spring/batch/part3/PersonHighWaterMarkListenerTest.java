@@ -0,0 +1,139 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PersonHighWaterMarkListenerTest {
+
+    private static final String STEP = "jdbcCursorStep";
+
+    private final JobExplorer jobExplorer = mock(JobExplorer.class);
+
+    @Test
+    void firstRunReadsEverythingAndStoresLastId() {
+        StepExecution stepExecution = stepExecution(2L, new JobParameters());
+        when(jobExplorer.getJobInstances(eq("itemReaderJob"), anyInt(), anyInt()))
+                .thenReturn(Collections.singletonList(stepExecution.getJobExecution().getJobInstance()));
+        PersonHighWaterMarkListener listener = new PersonHighWaterMarkListener(jobExplorer);
+
+        listener.beforeStep(stepExecution);
+        write(listener, stepExecution, Arrays.asList(person(3), person(7)));
+        write(listener, stepExecution, Collections.singletonList(person(5)));
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        listener.afterStep(stepExecution);
+
+        assertThat(stepExecution.getExecutionContext().getLong(PersonHighWaterMarkListener.FROM_ID)).isEqualTo(0L);
+        assertThat(stepExecution.getJobExecution().getExecutionContext()
+                .getLong(PersonHighWaterMarkListener.jobKey(STEP))).isEqualTo(7L);
+    }
+
+    @Test
+    void nextRunStartsAfterPreviousHighWaterMark() {
+        JobExecution previous = previousExecution(1L, 7L);
+        StepExecution stepExecution = stepExecution(2L, new JobParameters());
+        givenInstances(stepExecution, previous);
+
+        new PersonHighWaterMarkListener(jobExplorer).beforeStep(stepExecution);
+
+        assertThat(stepExecution.getExecutionContext().getLong(PersonHighWaterMarkListener.FROM_ID)).isEqualTo(7L);
+    }
+
+    @Test
+    void fullScanIgnoresHighWaterMark() {
+        JobExecution previous = previousExecution(1L, 7L);
+        StepExecution stepExecution = stepExecution(2L, new JobParametersBuilder()
+                .addString(PersonHighWaterMarkListener.FULL_SCAN, "true")
+                .toJobParameters());
+        givenInstances(stepExecution, previous);
+
+        new PersonHighWaterMarkListener(jobExplorer).beforeStep(stepExecution);
+
+        assertThat(stepExecution.getExecutionContext().getLong(PersonHighWaterMarkListener.FROM_ID)).isEqualTo(0L);
+    }
+
+    @Test
+    void failedStepDoesNotMoveHighWaterMark() {
+        StepExecution stepExecution = stepExecution(2L, new JobParameters());
+        stepExecution.getExecutionContext().putLong(PersonHighWaterMarkListener.FROM_ID, 7L); // 재시작
+        PersonHighWaterMarkListener listener = new PersonHighWaterMarkListener(jobExplorer);
+
+        listener.beforeStep(stepExecution);
+        write(listener, stepExecution, Collections.singletonList(person(9)));
+        stepExecution.setStatus(BatchStatus.FAILED);
+        listener.afterStep(stepExecution);
+
+        assertThat(stepExecution.getExecutionContext().getLong(PersonHighWaterMarkListener.FROM_ID)).isEqualTo(7L);
+        assertThat(stepExecution.getJobExecution().getExecutionContext()
+                .containsKey(PersonHighWaterMarkListener.jobKey(STEP))).isFalse();
+    }
+
+    @Test
+    void concurrentExecutionsKeepTheirOwnLastId() throws Exception {
+        PersonHighWaterMarkListener listener = new PersonHighWaterMarkListener(jobExplorer);
+        StepExecution first = stepExecution(2L, new JobParameters());
+        StepExecution second = stepExecution(3L, new JobParameters());
+        first.getExecutionContext().putLong(PersonHighWaterMarkListener.FROM_ID, 0L);
+        second.getExecutionContext().putLong(PersonHighWaterMarkListener.FROM_ID, 0L);
+        listener.beforeStep(first);
+        listener.beforeStep(second); // 같은 listener 를 두 실행이 공유한다.
+
+        Thread other = new Thread(() -> write(listener, first, Collections.singletonList(person(11))));
+        other.start();
+        other.join();
+        write(listener, second, Collections.singletonList(person(4)));
+
+        assertThat(first.getExecutionContext().getLong(PersonHighWaterMarkListener.LAST_ID)).isEqualTo(11L);
+        assertThat(second.getExecutionContext().getLong(PersonHighWaterMarkListener.LAST_ID)).isEqualTo(4L);
+    }
+
+    /**
+     * chunk 는 step thread 에서 실행되고, 그 thread 에는 StepSynchronizationManager 에 StepExecution 이 등록되어 있다.
+     */
+    private void write(PersonHighWaterMarkListener listener, StepExecution stepExecution, List<Person> items) {
+        StepSynchronizationManager.register(stepExecution);
+        try {
+            listener.afterWrite(items);
+        } finally {
+            StepSynchronizationManager.close();
+        }
+    }
+
+    private void givenInstances(StepExecution current, JobExecution previous) {
+        when(jobExplorer.getJobInstances(eq("itemReaderJob"), anyInt(), anyInt()))
+                .thenReturn(Arrays.asList(current.getJobExecution().getJobInstance(), previous.getJobInstance()));
+        when(jobExplorer.getJobExecutions(previous.getJobInstance()))
+                .thenReturn(Collections.singletonList(previous));
+    }
+
+    private JobExecution previousExecution(long instanceId, long lastId) {
+        JobExecution jobExecution = new JobExecution(new JobInstance(instanceId, "itemReaderJob"), instanceId, new JobParameters(), null);
+        jobExecution.getExecutionContext().putLong(PersonHighWaterMarkListener.jobKey(STEP), lastId);
+        return jobExecution;
+    }
+
+    private StepExecution stepExecution(long instanceId, JobParameters jobParameters) {
+        JobExecution jobExecution = new JobExecution(new JobInstance(instanceId, "itemReaderJob"), instanceId, jobParameters, null);
+        return new StepExecution(STEP, jobExecution);
+    }
+
+    private Person person(int id) {
+        return new Person(id, "test name" + id, "20", "서울");
+    }
+}
@@ -0,0 +1,55 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersonIdRangePartitionerTest {
+
+    private EmbeddedDatabase dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+        new JdbcTemplate(dataSource).execute("create table person (" +
+                "id bigint primary key auto_increment, name varchar(255), age varchar(255), address varchar(255))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    void splitIdRangeWithoutGapOrOverlap() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("insert into person(name, age, address) values('name', '20', '서울')");
+        }
+
+        Map<String, ExecutionContext> partitions = new PersonIdRangePartitioner(dataSource).partition(3);
+
+        assertThat(partitions).hasSize(3);
+        assertThat(partitions.get("partition0").getLong("minId")).isEqualTo(1L);
+        assertThat(partitions.get("partition0").getLong("maxId")).isEqualTo(4L);
+        assertThat(partitions.get("partition1").getLong("minId")).isEqualTo(5L);
+        assertThat(partitions.get("partition2").getLong("maxId")).isEqualTo(10L);
+    }
+
+    @Test
+    void emptyTableHasSingleEmptyPartition() {
+        Map<String, ExecutionContext> partitions = new PersonIdRangePartitioner(dataSource).partition(4);
+
+        assertThat(partitions).hasSize(1);
+        assertThat(partitions.get("partition0").getLong("minId"))
+                .isGreaterThan(partitions.get("partition0").getLong("maxId"));
+    }
+}
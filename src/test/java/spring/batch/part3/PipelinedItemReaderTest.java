@@ -0,0 +1,163 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelinedItemReaderTest {
+
+    private static final List<String> ITEMS = Arrays.asList("0", "1", "2", "3", "4", "5");
+
+    @Test
+    void processInOrderAndSkipFilteredItems() throws Exception {
+        PipelinedItemReader<String, String> reader = new PipelinedItemReader<>(
+                new ListItemReader<>(ITEMS), item -> item.equals("2") ? null : item + "!", 2);
+        reader.open(new ExecutionContext());
+
+        assertThat(readAll(reader)).containsExactly("0!", "1!", "3!", "4!", "5!");
+        reader.close();
+    }
+
+    @Test
+    void restartFromLastHandedOutItemNotFromPrefetchedOnes() throws Exception {
+        PipelinedItemReader<String, String> reader = new PipelinedItemReader<>(
+                new ListItemReader<>(ITEMS), item -> item, 4);
+        ExecutionContext executionContext = new ExecutionContext();
+        reader.open(executionContext);
+        reader.read();
+        reader.read();
+        reader.update(executionContext); // 2 개까지 commit 되었다.
+        reader.close();
+
+        PipelinedItemReader<String, String> restarted = new PipelinedItemReader<>(
+                new ListItemReader<>(ITEMS), item -> item, 4);
+        restarted.open(executionContext);
+
+        assertThat(readAll(restarted)).containsExactly("2", "3", "4", "5");
+        restarted.close();
+    }
+
+    @Test
+    void processorErrorIsThrownFromRead() throws Exception {
+        PipelinedItemReader<String, String> reader = new PipelinedItemReader<>(
+                new ListItemReader<>(ITEMS), item -> {
+                    throw new IllegalStateException("bad item " + item);
+                }, 2);
+        reader.open(new ExecutionContext());
+
+        assertThatThrownBy(reader::read).isInstanceOf(IllegalStateException.class).hasMessage("bad item 0");
+        assertThat(reader.read()).isNull();
+        reader.close();
+    }
+
+    @Test
+    void closeWaitsForDelegateReadBeforeClosingDelegate() throws Exception {
+        SlowItemStreamReader delegate = new SlowItemStreamReader();
+        PipelinedItemReader<String, String> reader = new PipelinedItemReader<>(delegate, item -> item, 1);
+        reader.open(new ExecutionContext());
+        assertThat(reader.read()).isEqualTo("item");
+
+        reader.close();
+
+        assertThat(delegate.closedWhileReading).isFalse();
+        assertThat(delegate.closed).isTrue();
+    }
+
+    @Test
+    void chunkStepCountsFilteredItems() throws Exception {
+        EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .addScript("org/springframework/batch/core/schema-h2.sql")
+                .build();
+        try {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+            jobRepositoryFactory.setDataSource(dataSource);
+            jobRepositoryFactory.setTransactionManager(transactionManager);
+            jobRepositoryFactory.afterPropertiesSet();
+            JobRepository jobRepository = jobRepositoryFactory.getObject();
+
+            List<String> written = new ArrayList<>();
+            PipelinedItemReader<String, String> reader = new PipelinedItemReader<>(
+                    new ListItemReader<>(ITEMS), item -> Integer.parseInt(item) % 3 == 2 ? null : item, 2);
+            Step step = reader.applyTo(new StepBuilderFactory(jobRepository, transactionManager).get("pipelinedStep")
+                    .<String, String>chunk(2)
+                    .reader(reader)
+                    .writer(written::addAll)
+                    .build());
+            SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+            jobLauncher.setJobRepository(jobRepository);
+            jobLauncher.afterPropertiesSet();
+
+            JobExecution jobExecution = jobLauncher.run(new JobBuilderFactory(jobRepository).get("pipelinedJob").start(step).build(),
+                    new JobParametersBuilder().toJobParameters());
+
+            StepExecution stepExecution = jobExecution.getStepExecutions().iterator().next();
+            assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+            assertThat(written).containsExactly("0", "1", "3", "4");
+            assertThat(stepExecution.getReadCount()).isEqualTo(ITEMS.size());
+            assertThat(stepExecution.getFilterCount()).isEqualTo(2); // "2", "5"
+            assertThat(stepExecution.getWriteCount()).isEqualTo(4);
+        } finally {
+            dataSource.shutdown();
+        }
+    }
+
+    private List<String> readAll(PipelinedItemReader<String, String> reader) throws Exception {
+        List<String> items = new ArrayList<>();
+        String item;
+        while ((item = reader.read()) != null) {
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * interrupt 를 무시하고 50ms 동안 읽는다. (JDBC cursor 처럼)
+     */
+    private static class SlowItemStreamReader extends AbstractItemStreamItemReader<String> {
+
+        private volatile boolean reading;
+        private volatile boolean closed;
+        private volatile boolean closedWhileReading;
+
+        @Override
+        public String read() {
+            reading = true;
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+            while (System.nanoTime() < until) {
+                Thread.yield();
+            }
+            reading = false;
+            return "item";
+        }
+
+        @Override
+        public void close() {
+            closedWhileReading = reading;
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package spring.batch.part3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollingFileItemWriterTest {
+
+    private static final String HEADER = "id,이름,나이,거주지";
+
+    @TempDir
+    File directory;
+
+    @Test
+    void rollGzipFilesByRowCount() throws Exception {
+        RollingFileItemWriter<String> writer = writer(RollingFileItemWriter.Compression.GZIP);
+        writer.setMaxRowsPerFile(4);
+        writer.open(new ExecutionContext());
+
+        writer.write(Arrays.asList("1", "2"));
+        writer.write(Arrays.asList("3", "4"));
+        writer.write(Arrays.asList("5", "6"));
+        writer.close();
+
+        assertThat(readLines(writer.getFile(1))).containsExactly(HEADER, "1", "2", "3", "4");
+        assertThat(readLines(writer.getFile(2))).containsExactly(HEADER, "5", "6");
+    }
+
+    @Test
+    void restartTruncatesToLastCommittedOffset() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        RollingFileItemWriter<String> writer = writer(RollingFileItemWriter.Compression.GZIP);
+        writer.setMaxRowsPerFile(2);
+        writer.open(executionContext);
+        writer.write(Arrays.asList("1", "2"));
+        writer.update(executionContext); // commit
+        writer.write(Arrays.asList("3", "4")); // 2 번째 파일로 넘어간 뒤 commit 전에 실패
+        writer.close();
+
+        RollingFileItemWriter<String> restarted = writer(RollingFileItemWriter.Compression.GZIP);
+        restarted.setMaxRowsPerFile(2);
+        restarted.open(executionContext);
+        assertThat(restarted.getFile(2)).doesNotExist();
+
+        restarted.write(Arrays.asList("3", "4"));
+        restarted.close();
+
+        assertThat(readLines(restarted.getFile(1))).containsExactly(HEADER, "1", "2");
+        assertThat(readLines(restarted.getFile(2))).containsExactly(HEADER, "3", "4");
+    }
+
+    @Test
+    void rolledBackChunkIsNotWritten() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new ResourcelessTransactionManager());
+        RollingFileItemWriter<String> writer = writer(RollingFileItemWriter.Compression.NONE);
+        writer.open(new ExecutionContext());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            write(writer, Arrays.asList("1", "2"));
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> write(writer, Arrays.asList("3", "4")));
+        writer.close();
+
+        assertThat(readLines(writer.getFile(1))).containsExactly(HEADER, "3", "4");
+    }
+
+    @Test
+    void concurrentChunksAreNotInterleaved() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new ResourcelessTransactionManager());
+        RollingFileItemWriter<String> writer = writer(RollingFileItemWriter.Compression.GZIP);
+        writer.setBufferSize(256);
+        writer.open(new ExecutionContext());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int base = thread * 10_000;
+            futures.add(executor.submit(() -> {
+                for (int chunk = 0; chunk < 50; chunk++) {
+                    List<String> items = new ArrayList<>();
+                    for (int i = 0; i < 10; i++) {
+                        items.add(String.valueOf(base + chunk * 10 + i));
+                    }
+                    transactionTemplate.executeWithoutResult(status -> write(writer, items));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        writer.close();
+
+        List<String> lines = readLines(writer.getFile(1));
+        assertThat(lines.get(0)).isEqualTo(HEADER);
+        assertThat(lines.subList(1, lines.size())).hasSize(8 * 50 * 10).doesNotHaveDuplicates();
+    }
+
+    private RollingFileItemWriter<String> writer(RollingFileItemWriter.Compression compression) {
+        RollingFileItemWriter<String> writer = new RollingFileItemWriter<>();
+        writer.setDirectory(directory);
+        writer.setFilePrefix("person");
+        writer.setHeader(HEADER);
+        writer.setLineAggregator(item -> item);
+        writer.setCompression(compression);
+        return writer;
+    }
+
+    private void write(RollingFileItemWriter<String> writer, List<String> items) {
+        try {
+            writer.write(items);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<String> readLines(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            in = new GZIPInputStream(in);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
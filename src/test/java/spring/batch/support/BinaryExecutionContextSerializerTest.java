@@ -0,0 +1,89 @@
+package spring.batch.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.repository.dao.Jackson2ExecutionContextStringSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryExecutionContextSerializerTest {
+
+    @Test
+    void roundTripKeepsValueTypes() throws Exception {
+        Map<String, Object> context = context();
+
+        Map<String, Object> read = roundTrip(new BinaryExecutionContextSerializer(), context);
+
+        assertThat(read).isEqualTo(context);
+        assertThat(read.get("read.count")).isInstanceOf(Integer.class);
+        assertThat(read.get("byte.offset")).isInstanceOf(Long.class);
+    }
+
+    @Test
+    void compressedRoundTrip() throws Exception {
+        BinaryExecutionContextSerializer serializer =
+                new BinaryExecutionContextSerializer(new Jackson2ExecutionContextStringSerializer(), true, 0);
+        Map<String, Object> context = context();
+        context.put("long.text", new String(new char[5000]).replace('\0', 'a'));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(context, out);
+
+        assertThat(out.size()).isLessThan(5000);
+        assertThat(serializer.deserialize(new ByteArrayInputStream(out.toByteArray()))).isEqualTo(context);
+    }
+
+    @Test
+    void readContextWrittenAsJson() throws Exception {
+        Map<String, Object> context = new HashMap<>();
+        context.put("read.count", 3);
+        context.put("customItemReader.name", "test");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Jackson2ExecutionContextStringSerializer().serialize(context, out);
+
+        Map<String, Object> read = new BinaryExecutionContextSerializer()
+                .deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(read).isEqualTo(context);
+    }
+
+    @Test
+    void unknownVersionFails() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BinaryExecutionContextSerializer().serialize(context(), out);
+        byte[] message = Base64.getDecoder().decode(out.toByteArray());
+        message[1] = 99;
+
+        assertThatThrownBy(() -> new BinaryExecutionContextSerializer()
+                .deserialize(new ByteArrayInputStream(Base64.getEncoder().encode(message))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Map<String, Object> context() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("read.count", 42);
+        context.put("byte.offset", 123456789012L);
+        context.put("name", "서울");
+        context.put("ratio", 0.5d);
+        context.put("done", Boolean.TRUE);
+        context.put("time", new Date(1000L));
+        context.put("amount", new BigDecimal("12.50"));
+        context.put("nothing", null);
+        return context;
+    }
+
+    private Map<String, Object> roundTrip(BinaryExecutionContextSerializer serializer,
+                                          Map<String, Object> context) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.serialize(context, out);
+        return serializer.deserialize(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
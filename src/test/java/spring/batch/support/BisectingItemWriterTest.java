@@ -0,0 +1,220 @@
+package spring.batch.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.batch.part3.Person;
+import spring.batch.part3.PersonJdbcBatchItemWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BisectingItemWriterTest {
+
+    private EmbeddedDatabase dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private final AtomicInteger writes = new AtomicInteger();
+    private final List<Integer> skipped = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .addScript("org/springframework/batch/core/schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table person (" +
+                "id bigint primary key, name varchar(255), age varchar(255), address varchar(255))");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    void isolateBadRowsWithLogarithmicWrites() {
+        insertExisting(500); // 이미 있는 id -> insert 실패
+
+        write(writer(10), persons(1000));
+
+        assertThat(skipped).containsExactly(500);
+        assertThat(count()).isEqualTo(1000);
+        // 전체 1 번 + 단계마다 반으로 나눈 2 번 * log2(1000) 단계
+        assertThat(writes.get()).isLessThanOrEqualTo(1 + 2 * 10);
+    }
+
+    @Test
+    void isolateSeveralBadRows() {
+        insertExisting(3);
+        insertExisting(7);
+        insertExisting(16);
+
+        write(writer(10), persons(16));
+
+        assertThat(skipped).containsExactly(3, 7, 16);
+        assertThat(count()).isEqualTo(16);
+    }
+
+    @Test
+    void failWhenSkipLimitExceededAndRollbackChunk() {
+        insertExisting(3);
+        insertExisting(7);
+
+        assertThatThrownBy(() -> write(writer(1), persons(16)))
+                .isInstanceOf(SkipLimitExceededException.class);
+        assertThat(count()).isEqualTo(2);
+    }
+
+    @Test
+    void notSkippableExceptionIsThrown() {
+        BisectingItemWriter<Person> writer = new BisectingItemWriter<>(items -> {
+            throw new IllegalStateException("db down");
+        }, dataSource, e -> e instanceof DataIntegrityViolationException, 10);
+
+        assertThatThrownBy(() -> write(writer, persons(4))).hasMessage("db down");
+    }
+
+    @Test
+    void chunkStepCountsSkippedRowsAsWriteSkips() throws Exception {
+        insertExisting(3);
+        insertExisting(150);
+        insertExisting(999);
+
+        StepExecution stepExecution = runChunkStep(writer(10), persons(1000));
+
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(stepExecution.getReadCount()).isEqualTo(1000);
+        assertThat(stepExecution.getWriteSkipCount()).isEqualTo(3);
+        assertThat(stepExecution.getWriteCount()).isEqualTo(997);
+        assertThat(stepExecution.getWriteCount() + stepExecution.getWriteSkipCount()).isEqualTo(stepExecution.getReadCount());
+        assertThat(skipped).containsExactly(3, 150, 999);
+        assertThat(count()).isEqualTo(1000);
+    }
+
+    @Test
+    void chunkStepFailsWhenStepSkipLimitExceeded() throws Exception {
+        insertExisting(3);
+        insertExisting(150);
+        insertExisting(250);
+
+        StepExecution stepExecution = runChunkStep(writer(2), persons(1000));
+
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(stepExecution.getWriteSkipCount()).isEqualTo(2); // 세번째 chunk 는 rollback 된다.
+        assertThat(stepExecution.getWriteCount()).isEqualTo(198);
+        assertThat(skipped).containsExactly(3, 150);
+        assertThat(count()).isEqualTo(3 + 198);
+    }
+
+    private StepExecution runChunkStep(BisectingItemWriter<Person> writer, List<Person> items) throws Exception {
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+        jobRepositoryFactory.setDataSource(dataSource);
+        jobRepositoryFactory.setTransactionManager(transactionManager);
+        jobRepositoryFactory.afterPropertiesSet();
+        JobRepository jobRepository = jobRepositoryFactory.getObject();
+
+        TaskletStep step = writer.applyTo(new StepBuilderFactory(jobRepository, transactionManager).get("bisectingStep")
+                .<Person, Person>chunk(100)
+                .reader(new ListItemReader<>(items))
+                .writer(writer)
+                .build());
+        Job job = new JobBuilderFactory(jobRepository).get("bisectingJob").start(step).build();
+
+        SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.afterPropertiesSet();
+        JobExecution jobExecution = jobLauncher.run(job, new JobParametersBuilder().toJobParameters());
+        return jobExecution.getStepExecutions().iterator().next();
+    }
+
+    private BisectingItemWriter<Person> writer(int skipLimit) {
+        PersonJdbcBatchItemWriter delegate = new PersonJdbcBatchItemWriter();
+        delegate.setDataSource(dataSource);
+        delegate.setDatabaseType(DatabaseType.H2);
+        try {
+            delegate.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        ItemWriter<Person> counting = items -> {
+            writes.incrementAndGet();
+            delegate.write(items);
+        };
+
+        BisectingItemWriter<Person> writer = new BisectingItemWriter<>(counting, dataSource,
+                e -> e instanceof DataIntegrityViolationException, skipLimit);
+        writer.registerSkipListener(new SkipListener<Person, Person>() {
+            @Override
+            public void onSkipInRead(Throwable t) {
+            }
+
+            @Override
+            public void onSkipInWrite(Person item, Throwable t) {
+                skipped.add(item.getId());
+            }
+
+            @Override
+            public void onSkipInProcess(Person item, Throwable t) {
+            }
+        });
+        return writer;
+    }
+
+    private void write(ItemWriter<Person> writer, List<Person> items) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                writer.write(items);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private void insertExisting(int id) {
+        jdbcTemplate.update("insert into person(id, name, age, address) values(?, 'existing', '20', '서울')", id);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("select count(*) from person", Integer.class);
+    }
+
+    private List<Person> persons(int rows) {
+        List<Person> persons = new ArrayList<>(rows);
+        for (int i = 1; i <= rows; i++) {
+            persons.add(new Person(i, "test name" + i, "20", "서울"));
+        }
+        return persons;
+    }
+}
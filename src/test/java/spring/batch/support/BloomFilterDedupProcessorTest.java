@@ -0,0 +1,138 @@
+package spring.batch.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterDedupProcessorTest {
+
+    @TempDir
+    File snapshotDirectory;
+
+    @Test
+    void falsePositiveRateIsNearConfiguredRate() throws Exception {
+        try (MappedBloomFilter filter = MappedBloomFilter.create(new File(snapshotDirectory, "fpp.bloom"), 100_000, 0.01)) {
+            LongStream.range(0, 100_000).forEach(filter::put);
+
+            assertThat(LongStream.range(0, 100_000).allMatch(filter::mightContain)).isTrue();
+            long falsePositives = LongStream.range(100_000, 200_000).filter(filter::mightContain).count();
+            assertThat(falsePositives).isLessThan(2_000);
+        }
+    }
+
+    @Test
+    void filterDuplicatesInChunkAndAcrossChunks() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        BloomFilterDedupProcessor<Long> processor = processor();
+        processor.beforeStep(stepExecution);
+        processor.open(stepExecution.getExecutionContext());
+
+        assertThat(chunk(processor, stepExecution.getExecutionContext(), 1L, 2L, 2L, 3L)).containsExactly(1L, 2L, 3L);
+        assertThat(chunk(processor, stepExecution.getExecutionContext(), 3L, 4L, 1L)).containsExactly(4L);
+        processor.close();
+
+        assertThat(processor.getDuplicates()).isEqualTo(3);
+    }
+
+    @Test
+    void rolledBackKeysAreNotDuplicates() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        BloomFilterDedupProcessor<Long> processor = processor();
+        processor.beforeStep(stepExecution);
+        processor.open(stepExecution.getExecutionContext());
+
+        processor.process(1L);
+        processor.process(2L);
+        processor.afterChunkError(null); // write 실패로 rollback
+
+        assertThat(chunk(processor, stepExecution.getExecutionContext(), 1L, 2L)).containsExactly(1L, 2L);
+        processor.close();
+    }
+
+    @Test
+    void restartFromLastCommittedCheckpoint() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        BloomFilterDedupProcessor<Long> processor = processor();
+        processor.beforeStep(stepExecution);
+        processor.open(stepExecution.getExecutionContext());
+        chunk(processor, stepExecution.getExecutionContext(), 1L, 2L);
+        chunk(processor, stepExecution.getExecutionContext(), 3L, 4L);
+        ExecutionContext committed = new ExecutionContext(stepExecution.getExecutionContext());
+
+        // 다음 chunk 는 update 까지 했지만 commit 되지 않았다.
+        processor.process(5L);
+        processor.update(new ExecutionContext(committed));
+        processor.close();
+
+        StepExecution restarted = MetaDataInstanceFactory.createStepExecution(stepExecution.getJobExecution(), "step", 2L);
+        restarted.setExecutionContext(committed);
+        BloomFilterDedupProcessor<Long> restartedProcessor = processor();
+        restartedProcessor.beforeStep(restarted);
+        restartedProcessor.open(restarted.getExecutionContext());
+
+        assertThat(chunk(restartedProcessor, restarted.getExecutionContext(), 1L, 4L, 5L, 6L)).containsExactly(5L, 6L);
+        assertThat(chunk(restartedProcessor, restarted.getExecutionContext(), 2L, 5L, 7L)).containsExactly(7L);
+        restartedProcessor.close();
+    }
+
+    @Test
+    void exactCheckPassesFalsePositives() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        BloomFilterDedupProcessor<Long> processor = processor();
+        processor.setExpectedInsertions(1);
+        processor.setFalsePositiveRate(0.5);
+        List<Long> written = new ArrayList<>();
+        processor.setExactCheck(written::contains);
+        processor.beforeStep(stepExecution);
+        processor.open(stepExecution.getExecutionContext());
+
+        List<Long> first = chunk(processor, stepExecution.getExecutionContext(), range(1, 21));
+        written.addAll(first);
+        List<Long> second = chunk(processor, stepExecution.getExecutionContext(), range(1, 100));
+        processor.close();
+
+        // 64 bit 에 20 개를 넣어서 filter 는 처음 보는 key 도 자주 이미 봤다고 한다.
+        assertThat(first).hasSize(20);
+        assertThat(second).containsExactly(range(21, 100));
+        assertThat(processor.getFalsePositives()).isGreaterThan(0);
+    }
+
+    private Long[] range(long from, long to) {
+        return LongStream.range(from, to).boxed().toArray(Long[]::new);
+    }
+
+    private BloomFilterDedupProcessor<Long> processor() {
+        BloomFilterDedupProcessor<Long> processor = new BloomFilterDedupProcessor<>(Long::longValue);
+        processor.setName("numbers");
+        processor.setSnapshotDirectory(snapshotDirectory);
+        processor.setExpectedInsertions(1000);
+        processor.afterPropertiesSet();
+        return processor;
+    }
+
+    /**
+     * chunk 하나를 process 하고 commit 한다.
+     */
+    private List<Long> chunk(BloomFilterDedupProcessor<Long> processor, ExecutionContext executionContext, Long... items) {
+        List<Long> passed = new ArrayList<>();
+        for (Long item : Arrays.asList(items)) {
+            Long result = processor.process(item);
+            if (result != null) {
+                passed.add(result);
+            }
+        }
+        processor.update(executionContext);
+        processor.afterChunk(null);
+        return passed;
+    }
+}
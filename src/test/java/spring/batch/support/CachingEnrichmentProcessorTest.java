@@ -0,0 +1,103 @@
+package spring.batch.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingEnrichmentProcessorTest {
+
+    private static final Map<String, String> REGIONS = new HashMap<>();
+
+    static {
+        REGIONS.put("서울", "11");
+        REGIONS.put("부산", "26");
+        REGIONS.put("대구", "27");
+    }
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Set<String>> queries = new ArrayList<>();
+
+    @Test
+    void loadKeysOfChunkWithOneQuery() {
+        CachingEnrichmentProcessor<String, String, String, String> processor = processor(10);
+        List<String> chunk = Arrays.asList("서울", "부산", "서울", "제주");
+
+        List<String> result = processChunk(processor, chunk);
+
+        assertThat(result).containsExactly("11", "26", "11", "?");
+        assertThat(queries).containsExactly(new HashSet<>(Arrays.asList("서울", "부산", "제주")));
+        assertThat(meterRegistry.counter("batch.cache.miss", "cache", "region").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("batch.cache.hit", "cache", "region").count()).isEqualTo(3);
+    }
+
+    @Test
+    void cacheIsSharedAcrossChunksAndRemembersMissingKeys() {
+        CachingEnrichmentProcessor<String, String, String, String> processor = processor(10);
+
+        processChunk(processor, Arrays.asList("서울", "제주"));
+        processChunk(processor, Arrays.asList("제주", "서울"));
+
+        assertThat(queries).hasSize(1);
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        CachingEnrichmentProcessor<String, String, String, String> processor = processor(2);
+
+        processChunk(processor, Arrays.asList("서울"));
+        processChunk(processor, Arrays.asList("부산"));
+        processChunk(processor, Arrays.asList("서울")); // 부산 이 가장 오래 사용되지 않았다.
+        processChunk(processor, Arrays.asList("대구"));
+        processChunk(processor, Arrays.asList("서울"));
+
+        assertThat(queries).hasSize(3);
+        assertThat(processor.size()).isEqualTo(2);
+        assertThat(meterRegistry.counter("batch.cache.eviction", "cache", "region").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("batch.cache.size").tag("cache", "region").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void chunkWithMoreKeysThanMaximumSizeStillEnrichesEveryItem() {
+        CachingEnrichmentProcessor<String, String, String, String> processor = processor(1);
+
+        List<String> result = processChunk(processor, Arrays.asList("서울", "부산", "대구", "제주"));
+
+        assertThat(result).containsExactly("11", "26", "27", "?");
+        assertThat(processor.size()).isEqualTo(1);
+    }
+
+    private List<String> processChunk(CachingEnrichmentProcessor<String, String, String, String> processor,
+                                      List<String> chunk) {
+        processor.beforeChunk(null);
+        chunk.forEach(processor::afterRead);
+        List<String> result = new ArrayList<>();
+        for (String item : chunk) {
+            result.add(processor.process(item));
+        }
+        processor.afterChunk(null);
+        return result;
+    }
+
+    private CachingEnrichmentProcessor<String, String, String, String> processor(int maximumSize) {
+        return new CachingEnrichmentProcessor<>("region", maximumSize,
+                address -> address,
+                addresses -> {
+                    queries.add(new HashSet<>(addresses));
+                    Map<String, String> loaded = new HashMap<>();
+                    addresses.stream().filter(REGIONS::containsKey).forEach(address -> loaded.put(address, REGIONS.get(address)));
+                    return loaded;
+                },
+                (address, regionCode) -> regionCode != null ? regionCode : "?",
+                meterRegistry);
+    }
+}
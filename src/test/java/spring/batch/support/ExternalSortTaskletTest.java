@@ -0,0 +1,171 @@
+package spring.batch.support;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExternalSortTaskletTest {
+
+    private static final List<Integer> INPUT = new Random(7).ints(1000, 0, 300).boxed().collect(Collectors.toList());
+
+    @TempDir
+    File spillDirectory;
+
+    @Test
+    void spillRunsAndMergeInOrder() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ExternalSortTasklet<Integer> tasklet = tasklet();
+        tasklet.open(stepExecution.getExecutionContext());
+
+        int executions = 1;
+        while (tasklet.execute(stepExecution.createStepContribution(), chunkContext(stepExecution)) == RepeatStatus.CONTINUABLE) {
+            executions++;
+        }
+        tasklet.close();
+
+        assertThat(executions).isGreaterThan(1);
+        assertThat(merge(stepExecution)).isEqualTo(INPUT.stream().sorted().collect(Collectors.toList()));
+        assertThat(spillDirectory.listFiles()).isEmpty(); // merge 가 끝나면 run 파일을 지운다.
+    }
+
+    @Test
+    void restartKeepsCompletedRuns() throws Exception {
+        StepExecution failed = MetaDataInstanceFactory.createStepExecution();
+        ExternalSortTasklet<Integer> tasklet = tasklet();
+        tasklet.open(failed.getExecutionContext());
+        tasklet.execute(failed.createStepContribution(), chunkContext(failed));
+        tasklet.execute(failed.createStepContribution(), chunkContext(failed));
+        tasklet.update(failed.getExecutionContext()); // run 2 개까지 commit 되었다.
+        tasklet.execute(failed.createStepContribution(), chunkContext(failed)); // commit 전에 실패
+        tasklet.close();
+
+        StepExecution restarted = MetaDataInstanceFactory.createStepExecution(failed.getJobExecution(), "sortStep", 2L);
+        restarted.setExecutionContext(new ExecutionContext(failed.getExecutionContext()));
+        ExternalSortTasklet<Integer> restartedTasklet = tasklet();
+        restartedTasklet.open(restarted.getExecutionContext());
+        while (restartedTasklet.execute(restarted.createStepContribution(), chunkContext(restarted)) == RepeatStatus.CONTINUABLE) {
+            // 남은 입력을 끝까지 정렬한다.
+        }
+        restartedTasklet.close();
+
+        assertThat(new File(spillDirectory, "numbers-" + failed.getJobExecution().getJobId() + "-0000.run")).exists();
+        assertThat(merge(restarted)).isEqualTo(INPUT.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void runFilesKeepDelimitersAndNulls() throws Exception {
+        List<String[]> people = Arrays.asList(
+                new String[]{"3", "Kim, \"Chulsoo\"", "서울"},
+                new String[]{"1", null, "부산"},
+                new String[]{"2", "tab\there\nnew line \\", null},
+                new String[]{"4", "", "인천"});
+        Comparator<String[]> byId = Comparator.comparing(fields -> Integer.valueOf(fields[0]));
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ExternalSortTasklet<String[]> tasklet = new ExternalSortTasklet<>(new ListStreamReader<>(people), byId, EscapedFields::join);
+        tasklet.setName("people");
+        tasklet.setSpillDirectory(spillDirectory);
+        tasklet.setMemoryBudgetBytes(1); // row 마다 run 하나
+        tasklet.afterPropertiesSet();
+        tasklet.open(stepExecution.getExecutionContext());
+        while (tasklet.execute(stepExecution.createStepContribution(), chunkContext(stepExecution)) == RepeatStatus.CONTINUABLE) {
+            // 모든 run 을 만든다.
+        }
+        tasklet.close();
+
+        StepExecution mergeStep = MetaDataInstanceFactory.createStepExecution(stepExecution.getJobExecution(), "mergeStep", 3L);
+        SortedRunsItemReader<String[]> reader = new SortedRunsItemReader<>(
+                (line, lineNumber) -> EscapedFields.split(line), byId);
+        reader.setSortName("people");
+        reader.beforeStep(mergeStep);
+        reader.open(mergeStep.getExecutionContext());
+        List<String[]> merged = new ArrayList<>();
+        String[] item;
+        while ((item = reader.read()) != null) {
+            merged.add(item);
+        }
+        reader.close();
+
+        assertThat(merged).containsExactly(
+                new String[]{"1", null, "부산"},
+                new String[]{"2", "tab\there\nnew line \\", null},
+                new String[]{"3", "Kim, \"Chulsoo\"", "서울"},
+                new String[]{"4", "", "인천"});
+    }
+
+    private ExternalSortTasklet<Integer> tasklet() {
+        ExternalSortTasklet<Integer> tasklet = new ExternalSortTasklet<>(
+                new ListStreamReader<>(INPUT), Comparator.naturalOrder(), String::valueOf);
+        tasklet.setName("numbers");
+        tasklet.setSpillDirectory(spillDirectory);
+        tasklet.setMemoryBudgetBytes(100 * 70); // run 하나에 100 개 정도
+        tasklet.afterPropertiesSet();
+        return tasklet;
+    }
+
+    private List<Integer> merge(StepExecution sortStep) throws Exception {
+        StepExecution mergeStep = MetaDataInstanceFactory.createStepExecution(sortStep.getJobExecution(), "mergeStep", 3L);
+        SortedRunsItemReader<Integer> reader = new SortedRunsItemReader<>(
+                (line, lineNumber) -> Integer.valueOf(line), Comparator.naturalOrder());
+        reader.setSortName("numbers");
+        reader.beforeStep(mergeStep);
+        reader.open(mergeStep.getExecutionContext());
+
+        List<Integer> items = new ArrayList<>();
+        Integer item;
+        while ((item = reader.read()) != null) {
+            items.add(item);
+        }
+        reader.close();
+        mergeStep.setStatus(BatchStatus.COMPLETED);
+        reader.afterStep(mergeStep);
+        return items;
+    }
+
+    private ChunkContext chunkContext(StepExecution stepExecution) {
+        return new ChunkContext(new StepContext(stepExecution));
+    }
+
+    /**
+     * 읽은 위치를 execution context 에 저장하는 list reader
+     */
+    private static class ListStreamReader<T> extends AbstractItemCountingItemStreamItemReader<T> {
+
+        private final List<T> items;
+
+        ListStreamReader(List<T> items) {
+            this.items = items;
+            setName("listStreamReader");
+        }
+
+        @Override
+        protected T doRead() {
+            int index = getCurrentItemCount() - 1;
+            return index < items.size() ? items.get(index) : null;
+        }
+
+        @Override
+        protected void doOpen() {
+        }
+
+        @Override
+        protected void doClose() {
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package spring.batch.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.partition.support.SimplePartitioner;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Timeout(value = 1, unit = TimeUnit.MINUTES)
+class RemotePartitionHandlerTest {
+
+    private static final int GRID_SIZE = 6;
+    private static final int WORKERS = 2;
+
+    private EmbeddedDatabase dataSource;
+    private JobRepository jobRepository;
+    private JobExplorer jobExplorer;
+    private StepBuilderFactory stepBuilderFactory;
+    private JobBuilderFactory jobBuilderFactory;
+    private LocalMessageBroker broker;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Set<String> workerThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("org/springframework/batch/core/schema-h2.sql")
+                .build();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+        jobRepositoryFactory.setDataSource(dataSource);
+        jobRepositoryFactory.setTransactionManager(transactionManager);
+        jobRepositoryFactory.afterPropertiesSet();
+        jobRepository = jobRepositoryFactory.getObject();
+
+        JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+        jobExplorerFactory.setDataSource(dataSource);
+        jobExplorerFactory.afterPropertiesSet();
+        jobExplorer = jobExplorerFactory.getObject();
+
+        stepBuilderFactory = new StepBuilderFactory(jobRepository, transactionManager);
+        jobBuilderFactory = new JobBuilderFactory(jobRepository);
+        broker = new LocalMessageBroker(0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try {
+            workers.forEach(worker -> broker.send(RemotePartitionHandler.REQUESTS, RemotePartitionHandler.STOP));
+            for (Thread worker : workers) {
+                worker.join(5000);
+            }
+        } finally {
+            broker.close(); // 끝나지 않은 worker 는 연결이 끊어져서 끝난다.
+            dataSource.shutdown();
+        }
+    }
+
+    @Test
+    void workersExecutePartitionsOverBroker() throws Exception {
+        Step workerStep = stepBuilderFactory.get("workerStep")
+                .tasklet((contribution, chunkContext) -> {
+                    workerThreads.add(Thread.currentThread().getName());
+                    contribution.incrementWriteCount(5);
+                    return RepeatStatus.FINISHED;
+                })
+                .build();
+        for (int i = 0; i < WORKERS; i++) {
+            startWorker(i, stepName -> workerStep);
+        }
+
+        JobExecution jobExecution = launcher().run(job(new RemotePartitionHandler(broker, jobExplorer, GRID_SIZE, 30_000)),
+                new JobParametersBuilder().toJobParameters());
+
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        StepExecution manager = jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> "managerStep".equals(stepExecution.getStepName()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        assertThat(manager.getWriteCount()).isEqualTo(GRID_SIZE * 5);
+        assertThat(jobExplorer.getJobExecution(jobExecution.getId()).getStepExecutions())
+                .filteredOn(stepExecution -> stepExecution.getStepName().startsWith("workerStep:"))
+                .hasSize(GRID_SIZE)
+                .allMatch(stepExecution -> stepExecution.getStatus() == BatchStatus.COMPLETED);
+        assertThat(workerThreads).allMatch(name -> name.startsWith("worker-")); // manager thread 에서는 실행하지 않는다.
+    }
+
+    @Test
+    void failedStepLookupFailsManagerStep() throws Exception {
+        for (int i = 0; i < WORKERS; i++) {
+            startWorker(i, stepName -> {
+                throw new IllegalStateException("step 이 없다: " + stepName);
+            });
+        }
+
+        JobExecution jobExecution = launcher().run(job(new RemotePartitionHandler(broker, jobExplorer, GRID_SIZE, 30_000)),
+                new JobParametersBuilder().toJobParameters());
+
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(jobExplorer.getJobExecution(jobExecution.getId()).getStepExecutions())
+                .filteredOn(stepExecution -> stepExecution.getStepName().startsWith("workerStep:"))
+                .hasSize(GRID_SIZE)
+                .allMatch(stepExecution -> stepExecution.getStatus() == BatchStatus.FAILED); // worker 가 실패를 저장한다.
+    }
+
+    @Test
+    void deadWorkersFailWithoutWaitingForTimeout() throws Exception {
+        long start = System.currentTimeMillis();
+
+        JobExecution jobExecution = launcher().run(job(new RemotePartitionHandler(broker, jobExplorer, GRID_SIZE, 60_000, () -> false)),
+                new JobParametersBuilder().toJobParameters());
+
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(System.currentTimeMillis() - start).isLessThan(30_000);
+        assertThat(jobExecution.getAllFailureExceptions())
+                .anyMatch(e -> e.getMessage().contains("worker JVM 이 종료"));
+    }
+
+    private Job job(RemotePartitionHandler partitionHandler) {
+        Step managerStep = stepBuilderFactory.get("managerStep")
+                .partitioner("workerStep", new SimplePartitioner())
+                .partitionHandler(partitionHandler)
+                .build();
+        return jobBuilderFactory.get("remotePartitionJob").start(managerStep).build();
+    }
+
+    /**
+     * 다른 JVM 의 worker 처럼 socket 으로 broker 에 붙는다.
+     */
+    private void startWorker(final int index, final Function<String, Step> stepLocator) {
+        Thread worker = new Thread(() -> {
+            try (LocalMessageBrokerClient client = new LocalMessageBrokerClient(broker.getPort())) {
+                new RemotePartitionWorker(client, jobExplorer, jobRepository, stepLocator, 100).run();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, "worker-" + index);
+        worker.start();
+        workers.add(worker);
+    }
+
+    private SimpleJobLauncher launcher() throws Exception {
+        SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.afterPropertiesSet();
+        return jobLauncher;
+    }
+}
@@ -0,0 +1,62 @@
+package spring.batch.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RemotePartitioningTest 가 실행하는 worker JVM.
+ *
+ * ExampleApplication 대신 spring boot 없이 RemotePartitioning 이 넘긴 인자 (--key=value) 만 읽어서
+ * 같은 DB 에 붙고 workerStep (write 5) 을 실행한다. 받은 인자는 확인할 수 있게 그대로 출력한다.
+ */
+public class RemotePartitionWorkerMain {
+
+    static final int WRITE_COUNT = 5;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("arguments: " + String.join(" ", args));
+        Map<String, String> properties = new HashMap<>();
+        for (String arg : args) {
+            String[] property = arg.substring(2).split("=", 2);
+            properties.put(property[0], property.length > 1 ? property[1] : "");
+        }
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(properties.get("spring.datasource.url"));
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+            JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+            jobRepositoryFactory.setDataSource(dataSource);
+            jobRepositoryFactory.setTransactionManager(transactionManager);
+            jobRepositoryFactory.afterPropertiesSet();
+            JobRepository jobRepository = jobRepositoryFactory.getObject();
+
+            JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+            jobExplorerFactory.setDataSource(dataSource);
+            jobExplorerFactory.afterPropertiesSet();
+            JobExplorer jobExplorer = jobExplorerFactory.getObject();
+
+            Step workerStep = new StepBuilderFactory(jobRepository, transactionManager).get("workerStep")
+                    .tasklet((contribution, chunkContext) -> {
+                        contribution.incrementWriteCount(WRITE_COUNT);
+                        return RepeatStatus.FINISHED;
+                    })
+                    .build();
+
+            try (LocalMessageBrokerClient client = new LocalMessageBrokerClient(
+                    Integer.parseInt(properties.get("batch.remote.broker-port")))) {
+                new RemotePartitionWorker(client, jobExplorer, jobRepository, stepName -> workerStep, 100).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package spring.batch.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.support.SimplePartitioner;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * RemotePartitioning 으로 실제 worker JVM (RemotePartitionWorkerMain) 을 띄워서 실행한다.
+ * manager 와 worker 는 @TempDir 의 H2 file DB (AUTO_SERVER) 에 같이 붙는다.
+ * worker JVM 이 남지 않게 tearDown 에서 STOP 을 보내고, 끝나지 않으면 강제로 종료한다. (RemotePartitioning.destroy)
+ */
+@Timeout(value = 2, unit = TimeUnit.MINUTES)
+class RemotePartitioningTest {
+
+    private static final int GRID_SIZE = 4;
+
+    @TempDir
+    File directory;
+
+    private String url;
+    private HikariDataSource dataSource;
+    private JobRepository jobRepository;
+    private JobExplorer jobExplorer;
+    private StepBuilderFactory stepBuilderFactory;
+    private JobBuilderFactory jobBuilderFactory;
+    private RemotePartitioning remotePartitioning;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        url = "jdbc:h2:file:" + new File(directory, "batch").getAbsolutePath() + ";AUTO_SERVER=TRUE";
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        new ResourceDatabasePopulator(new ClassPathResource("org/springframework/batch/core/schema-h2.sql")).execute(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        JobRepositoryFactoryBean jobRepositoryFactory = new JobRepositoryFactoryBean();
+        jobRepositoryFactory.setDataSource(dataSource);
+        jobRepositoryFactory.setTransactionManager(transactionManager);
+        jobRepositoryFactory.afterPropertiesSet();
+        jobRepository = jobRepositoryFactory.getObject();
+
+        JobExplorerFactoryBean jobExplorerFactory = new JobExplorerFactoryBean();
+        jobExplorerFactory.setDataSource(dataSource);
+        jobExplorerFactory.afterPropertiesSet();
+        jobExplorer = jobExplorerFactory.getObject();
+
+        stepBuilderFactory = new StepBuilderFactory(jobRepository, transactionManager);
+        jobBuilderFactory = new JobBuilderFactory(jobRepository);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try {
+            if (remotePartitioning != null) {
+                remotePartitioning.destroy();
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    void workerJvmExecutesPartitions() throws Exception {
+        remotePartitioning = remotePartitioning(RemotePartitionWorkerMain.class.getName());
+
+        JobExecution jobExecution = run(remotePartitioning.partitionHandler(GRID_SIZE));
+
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        StepExecution manager = jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> "managerStep".equals(stepExecution.getStepName()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        assertThat(manager.getWriteCount()).isEqualTo(GRID_SIZE * RemotePartitionWorkerMain.WRITE_COUNT);
+
+        String workerLog = new String(Files.readAllBytes(new File(directory, "remote-worker-0.log").toPath()), StandardCharsets.UTF_8);
+        assertThat(workerLog)
+                .contains("--batch.remote.worker=true")
+                .contains("--spring.datasource.url=" + url) // ;AUTO_SERVER=TRUE 까지 그대로 넘긴다.
+                .contains("--spring.batch.initialize-schema=never");
+    }
+
+    @Test
+    void deadWorkerJvmFailsWithoutWaitingForTimeout() throws Exception {
+        remotePartitioning = remotePartitioning("spring.batch.support.NoSuchWorkerMain"); // 바로 종료된다.
+        long start = System.currentTimeMillis();
+
+        JobExecution jobExecution = run(remotePartitioning.partitionHandler(GRID_SIZE));
+
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(System.currentTimeMillis() - start).isLessThan(30_000);
+        assertThat(jobExecution.getAllFailureExceptions())
+                .anyMatch(e -> e.getMessage().contains("worker JVM 이 종료"));
+    }
+
+    private RemotePartitioning remotePartitioning(String mainClass) {
+        MockEnvironment environment = new MockEnvironment().withProperty("spring.datasource.url", url);
+        return new RemotePartitioning(jobExplorer, 1, 0, 60_000, mainClass, "256m", directory,
+                () -> new RemotePartitioningConfiguration().workerArguments(environment, ""));
+    }
+
+    private JobExecution run(PartitionHandler partitionHandler) throws Exception {
+        Step managerStep = stepBuilderFactory.get("managerStep")
+                .partitioner("workerStep", new SimplePartitioner())
+                .partitionHandler(partitionHandler)
+                .build();
+        Job job = jobBuilderFactory.get("remotePartitionJob").start(managerStep).build();
+
+        SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.afterPropertiesSet();
+        return jobLauncher.run(job, new JobParametersBuilder().toJobParameters());
+    }
+}